@@ -0,0 +1,76 @@
+package com.file.manager.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BedrockTextBenchmark {
+
+    @Param({"1KB", "64KB", "1MB", "4MB"})
+    public String size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String document;
+    private String modelOutput;
+    private String responseBody;
+    private List<String> rawTags;
+
+    @Setup
+    public void setUp() throws Exception {
+        document = TextCorpus.forProfile("document", TextCorpus.parseSize(size));
+
+        modelOutput = "```json\n{\"summary\": \"x\"}\n```\n" + TextCorpus.forProfile("document", 2048);
+        responseBody = objectMapper.writeValueAsString(Map.of(
+                "inputTextTokenCount", document.length() / 4,
+                "results", List.of(Map.of(
+                        "tokenCount", 180,
+                        "outputText", TextCorpus.forProfile("document", 1024),
+                        "completionReason", "FINISH"))));
+        rawTags = List.of(" Invoice. ", "Payment-Terms", "Customer Account!", "invoice", "Tax (2024)",
+                "Balance", "Statement", "Agreement", "Receipt #12", "Order");
+    }
+
+    @Benchmark
+    public void buildPerPromptRequests(Blackhole bh) {
+        bh.consume(BedrockService.buildSummaryPrompt(document, 40));
+        bh.consume(BedrockService.buildTagsPrompt(document));
+        bh.consume(BedrockService.buildSensitivePrompt(document));
+        bh.consume(BedrockService.buildConfidentialPrompt(document));
+    }
+
+    @Benchmark
+    public String buildStructuredRequest() {
+        return BedrockService.buildStructuredPrompt(document, 40);
+    }
+
+    @Benchmark
+    public String sanitizeOutput() {
+        return BedrockService.sanitizeOutput(modelOutput);
+    }
+
+    @Benchmark
+    public List<String> cleanTags() {
+        return BedrockService.cleanTags(rawTags.stream());
+    }
+
+    @Benchmark
+    public String parseResponse() throws Exception {
+        return BedrockService.parseOutputText(objectMapper, responseBody);
+    }
+
+    @Benchmark
+    public List<String> chunkDocument() {
+        return new TextChunker().chunk(document, 2000);
+    }
+}
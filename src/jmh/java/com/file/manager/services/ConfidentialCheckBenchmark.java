@@ -0,0 +1,54 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.ScanResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfidentialCheckBenchmark {
+
+    // "numeric" OCR exercises the old card-number pattern's backtracking
+    @Param({"invoice", "clean", "numeric"})
+    public String profile;
+
+    @Param({"1KB", "64KB", "1MB"})
+    public String size;
+
+    private String text;
+    private ConfidentialScanner scanner;
+
+    @Setup
+    public void setUp() {
+        text = TextCorpus.forProfile(profile, TextCorpus.parseSize(size));
+        scanner = new ConfidentialScanner(
+                List.of("invoice", "confidential", "contract", "bank", "credit", "debit", "form"),
+                List.of("passport", "driver license", "driving licence", "ssn", "aadhaar", "id card", "identity card", "national id"));
+    }
+
+    @Benchmark
+    public ScanResult scan() {
+        return scanner.scan(text);
+    }
+
+    // The keyword/regex chain ConfidentialScanner replaced, kept as the comparison point
+    @Benchmark
+    public boolean regexChain() {
+        String lower = text.toLowerCase();
+        if (lower.contains("invoice") || lower.contains("confidential") || lower.contains("passport")
+                || lower.contains("driver license") || lower.contains("ssn") || lower.contains("id")
+                || lower.contains("credit") || lower.contains("debit") || lower.contains("bank")
+                || lower.contains("form") || lower.contains("aadhaar")) {
+            return true;
+        }
+        if (text.matches(".*(?:\\d[ -]?){13,16}.*")) return true;
+        if (text.matches(".*[A-Za-z0-9_-]{20,}.*")) return true;
+        return text.matches(".*\\b\\d{2}[/-]\\d{2}[/-]\\d{2,4}\\b.*");
+    }
+}
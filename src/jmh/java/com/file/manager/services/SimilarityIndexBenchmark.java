@@ -0,0 +1,141 @@
+package com.file.manager.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Query latency of the HNSW index against a linear scan; recall@k against the exact answer is reported as the
+// hnsw:hits and hnsw:misses secondary results, recall = hits / (hits + misses)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimilarityIndexBenchmark {
+
+    private static final int DIMENSIONS = 512;
+    private static final int K = 10;
+    private static final int QUERIES = 256;
+
+    @Param({"10000", "100000"})
+    public int vectors;
+
+    @Param({"16", "64", "128"})
+    public int efSearch;
+
+    private HnswIndex index;
+    private UUID[] keys;
+    private float[][] data;
+    private float[][] queries;
+    // Exact top K of each query, as indices into data
+    private int[][] truth;
+    private int next;
+
+    // Summed per iteration; the lookups are a few dozen int compares next to a search of thousands of dot products
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Recall {
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        // Embeddings cluster by topic, so generate around a few hundred centres rather than uniformly
+        float[][] centres = new float[Math.max(16, vectors / 200)][];
+        for (int c = 0; c < centres.length; c++) {
+            centres[c] = gaussian(random, 1.0f);
+        }
+
+        index = new HnswIndex(DIMENSIONS, 16, 200, vectors);
+        keys = new UUID[vectors];
+        data = new float[vectors][];
+        for (int i = 0; i < vectors; i++) {
+            data[i] = HnswIndex.normalize(around(random, centres[random.nextInt(centres.length)]));
+            keys[i] = new UUID(0, i);
+            index.add(keys[i], data[i], 1);
+        }
+
+        queries = new float[QUERIES][];
+        truth = new int[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = HnswIndex.normalize(around(random, centres[random.nextInt(centres.length)]));
+            truth[q] = exact(queries[q]);
+        }
+    }
+
+    @Benchmark
+    public List<HnswIndex.Neighbour> hnsw(Recall recall) {
+        int q = next++ & (QUERIES - 1);
+        List<HnswIndex.Neighbour> result = index.search(queries[q], K, efSearch, null);
+        for (int expected : truth[q]) {
+            if (contains(result, keys[expected])) recall.hits++;
+            else recall.misses++;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int[] bruteForce() {
+        return exact(queries[next++ & (QUERIES - 1)]);
+    }
+
+    private static boolean contains(List<HnswIndex.Neighbour> result, UUID key) {
+        for (HnswIndex.Neighbour neighbour : result) {
+            if (neighbour.key().equals(key)) return true;
+        }
+        return false;
+    }
+
+    // Indices of the K highest dot products
+    private int[] exact(float[] query) {
+        int[] best = new int[K];
+        float[] bestScores = new float[K];
+        Arrays.fill(bestScores, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < data.length; i++) {
+            float score = 0;
+            float[] v = data[i];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                score += query[d] * v[d];
+            }
+            if (score <= bestScores[K - 1]) continue;
+            int at = K - 1;
+            while (at > 0 && bestScores[at - 1] < score) {
+                bestScores[at] = bestScores[at - 1];
+                best[at] = best[at - 1];
+                at--;
+            }
+            bestScores[at] = score;
+            best[at] = i;
+        }
+        return best;
+    }
+
+    private static float[] around(Random random, float[] centre) {
+        float[] noise = gaussian(random, 0.35f);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            noise[i] += centre[i];
+        }
+        return noise;
+    }
+
+    private static float[] gaussian(Random random, float scale) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,88 @@
+package com.file.manager.services;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs shaped like what the pipeline actually sees:
+ * Rekognition OCR lines and Tika output with paragraphs and page breaks.
+ */
+final class TextCorpus {
+
+    private static final String[] WORDS = {
+            "the", "of", "and", "payment", "due", "total", "amount", "account", "number", "customer",
+            "reference", "order", "date", "address", "street", "city", "phone", "email", "item",
+            "quantity", "price", "tax", "subtotal", "balance", "statement", "period", "terms",
+            "agreement", "party", "section", "clause", "shall", "receipt", "store", "cashier"
+    };
+
+    private TextCorpus() {
+    }
+
+    static String forProfile(String profile, int targetChars) {
+        return switch (profile) {
+            case "invoice" -> ocr(targetChars, new Random(42), true);
+            case "clean" -> ocr(targetChars, new Random(7), false);
+            case "numeric" -> numeric(targetChars, new Random(13));
+            case "document" -> document(targetChars, new Random(99));
+            default -> throw new IllegalArgumentException("Unknown corpus profile " + profile);
+        };
+    }
+
+    static int parseSize(String size) {
+        String s = size.trim().toUpperCase();
+        if (s.endsWith("MB")) return Integer.parseInt(s.substring(0, s.length() - 2)) * 1024 * 1024;
+        if (s.endsWith("KB")) return Integer.parseInt(s.substring(0, s.length() - 2)) * 1024;
+        return Integer.parseInt(s);
+    }
+
+    // OCR lines joined by spaces, optionally with the keywords and identifiers real invoices carry
+    private static String ocr(int targetChars, Random random, boolean withIdentifiers) {
+        StringBuilder sb = new StringBuilder(targetChars + 64);
+        while (sb.length() < targetChars) {
+            int words = 3 + random.nextInt(8);
+            for (int i = 0; i < words; i++) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            if (withIdentifiers && random.nextInt(10) == 0) {
+                sb.append(random.nextInt(28) + 1).append('/').append(random.nextInt(12) + 1).append("/2024 ");
+            }
+            if (random.nextInt(6) == 0) {
+                sb.append(random.nextInt(100000)).append('.').append(random.nextInt(100)).append(' ');
+            }
+        }
+        return sb.substring(0, targetChars);
+    }
+
+    // Long digit runs separated by spaces and dashes: the worst case for the card-number regex
+    private static String numeric(int targetChars, Random random) {
+        StringBuilder sb = new StringBuilder(targetChars + 16);
+        while (sb.length() < targetChars) {
+            int run = 4 + random.nextInt(9);
+            for (int i = 0; i < run; i++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            sb.append(random.nextBoolean() ? ' ' : '-');
+        }
+        return sb.substring(0, targetChars);
+    }
+
+    // Tika-style text: sentences, blank-line paragraphs, form feeds between pages
+    private static String document(int targetChars, Random random) {
+        StringBuilder sb = new StringBuilder(targetChars + 256);
+        int paragraphs = 0;
+        while (sb.length() < targetChars) {
+            int sentences = 2 + random.nextInt(6);
+            for (int s = 0; s < sentences; s++) {
+                int words = 6 + random.nextInt(14);
+                for (int i = 0; i < words; i++) {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    sb.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                    sb.append(i == words - 1 ? ". " : " ");
+                }
+            }
+            sb.append("\n\n");
+            if (++paragraphs % 8 == 0) sb.append('\f');
+        }
+        return sb.substring(0, targetChars);
+    }
+}
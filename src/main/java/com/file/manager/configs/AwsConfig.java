@@ -4,14 +4,25 @@ package com.file.manager.configs;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
-import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.sqs.SqsClient;
 
+import java.time.Duration;
+
+// Real clients; the loadtest profile swaps in the fakes from LoadTestConfig
 @Configuration
+@Profile("!loadtest")
 public class AwsConfig {
 
     @Value("${aws.s3.region}")
@@ -22,6 +33,25 @@ public class AwsConfig {
     @Value("${aws.s3.secret-key}")
     private String secretKey;
 
+    // Sync clients (S3 streaming, SQS long polls) block a thread per call anyway; size the pool to match
+    @Value("${aws.http.max-connections:200}")
+    private int maxConnections;
+
+    // Async clients: in-flight requests per client, and how many may wait for a connection
+    @Value("${aws.http.max-concurrency:500}")
+    private int maxConcurrency;
+    @Value("${aws.http.max-pending-acquires:10000}")
+    private int maxPendingAcquires;
+
+    @Value("${aws.http.connection-timeout-ms:2000}")
+    private long connectionTimeoutMs;
+    @Value("${aws.http.connection-acquire-timeout-ms:10000}")
+    private long connectionAcquireTimeoutMs;
+    @Value("${aws.http.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+    @Value("${aws.http.api-call-timeout-ms:120000}")
+    private long apiCallTimeoutMs;
+
     @Bean
     protected S3Client s3Client() {
 
@@ -30,6 +60,7 @@ public class AwsConfig {
         return S3Client.builder()
                 .region(Region.of(region))
                 .credentialsProvider(() -> awsBasicCredentials)
+                .httpClient(syncHttpClient())
                 .build();
     }
 
@@ -41,26 +72,60 @@ public class AwsConfig {
         return SqsClient.builder()
                 .region(Region.of(region))
                 .credentialsProvider(() -> awsBasicCredentials)
+                .httpClient(syncHttpClient())
                 .build();
     }
+
     @Bean
-    protected RekognitionClient rekClient () {
+    protected RekognitionAsyncClient rekognitionAsyncClient() {
 
         AwsBasicCredentials awsBasicCredentials = AwsBasicCredentials.create(accessKey, secretKey);
 
-        return RekognitionClient.builder()
+        return RekognitionAsyncClient.builder()
                 .region(Region.of(region))
                 .credentialsProvider(() -> awsBasicCredentials)
+                .httpClient(asyncHttpClient())
+                .overrideConfiguration(overrideConfiguration())
                 .build();
     }
+
     @Bean
-    protected BedrockRuntimeClient bedrockRuntimeClient () {
+    protected BedrockRuntimeAsyncClient bedrockRuntimeAsyncClient() {
 
         AwsBasicCredentials awsBasicCredentials = AwsBasicCredentials.create(accessKey, secretKey);
 
-        return BedrockRuntimeClient.builder()
+        return BedrockRuntimeAsyncClient.builder()
                 .region(Region.of(region))
                 .credentialsProvider(() -> awsBasicCredentials)
+                .httpClient(asyncHttpClient())
+                .overrideConfiguration(overrideConfiguration())
+                .build();
+    }
+
+    private SdkHttpClient syncHttpClient() {
+        return ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquireTimeoutMs))
+                .socketTimeout(Duration.ofMillis(readTimeoutMs))
+                .build();
+    }
+
+    private SdkAsyncHttpClient asyncHttpClient() {
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConcurrency)
+                .maxPendingConnectionAcquires(maxPendingAcquires)
+                .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquireTimeoutMs))
+                .readTimeout(Duration.ofMillis(readTimeoutMs))
+                .build();
+    }
+
+    // Retries for the AI clients are owned by AdaptiveRateLimiter, which needs to see every throttle
+    private ClientOverrideConfiguration overrideConfiguration() {
+        return ClientOverrideConfiguration.builder()
+                .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMs))
+                .retryStrategy(AwsRetryStrategy.doNotRetry())
                 .build();
     }
 }
@@ -0,0 +1,57 @@
+package com.file.manager.configs;
+
+import com.file.manager.metrics.PipelineMetrics;
+import com.file.manager.services.AdaptiveRateLimiter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+public class RateLimiterConfig {
+
+    // Timers for token refill and retry backoff only; no calls run on it
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService rateLimiterScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("rate-limiter-"));
+    }
+
+    @Bean
+    public AdaptiveRateLimiter bedrockLimiter(Environment env, ScheduledExecutorService rateLimiterScheduler,
+                                              PipelineMetrics pipelineMetrics) {
+        return build("bedrock", env, rateLimiterScheduler, pipelineMetrics);
+    }
+
+    @Bean
+    public AdaptiveRateLimiter rekognitionLimiter(Environment env, ScheduledExecutorService rateLimiterScheduler,
+                                                  PipelineMetrics pipelineMetrics) {
+        return build("rekognition", env, rateLimiterScheduler, pipelineMetrics);
+    }
+
+    // Reads ai.limiter.<service>.*
+    private AdaptiveRateLimiter build(String service, Environment env, ScheduledExecutorService scheduler,
+                                      PipelineMetrics pipelineMetrics) {
+        String prefix = "ai.limiter." + service + ".";
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(
+                service,
+                env.getProperty(prefix + "rate-per-second", Double.class, 20.0),
+                env.getProperty(prefix + "burst", Double.class, 20.0),
+                env.getProperty(prefix + "initial-concurrency", Integer.class, 8),
+                env.getProperty(prefix + "min-concurrency", Integer.class, 1),
+                env.getProperty(prefix + "max-concurrency", Integer.class, 64),
+                env.getProperty(prefix + "decrease-factor", Double.class, 0.5),
+                env.getProperty(prefix + "max-retries", Integer.class, 5),
+                env.getProperty(prefix + "base-backoff-ms", Long.class, 200L),
+                env.getProperty(prefix + "max-backoff-ms", Long.class, 10000L),
+                scheduler
+        );
+
+        pipelineMetrics.gauge("ai.limiter.concurrency.limit", limiter, AdaptiveRateLimiter::getConcurrencyLimit, "service", service);
+        pipelineMetrics.gauge("ai.limiter.in.flight", limiter, AdaptiveRateLimiter::getInFlight, "service", service);
+        pipelineMetrics.gauge("ai.limiter.waiting", limiter, AdaptiveRateLimiter::getWaiting, "service", service);
+        return limiter;
+    }
+}
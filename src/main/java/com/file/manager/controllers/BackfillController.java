@@ -0,0 +1,53 @@
+package com.file.manager.controllers;
+
+import com.file.manager.dto.BackfillFilter;
+import com.file.manager.models.BackfillRun;
+import com.file.manager.services.BackfillService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/admin/backfill")
+@RequiredArgsConstructor
+public class BackfillController {
+
+    private final BackfillService backfillService;
+
+    @PostMapping
+    public ResponseEntity<BackfillRun> start(@RequestBody(required = false) BackfillFilter filter) {
+        BackfillRun run = backfillService.start(filter == null ? new BackfillFilter() : filter);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(run);
+    }
+
+    @GetMapping("/{runId}")
+    public BackfillRun get(@PathVariable UUID runId) {
+        return backfillService.find(runId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown backfill run " + runId));
+    }
+
+    @PostMapping("/{runId}/resume")
+    public ResponseEntity<BackfillRun> resume(@PathVariable UUID runId) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(backfillService.resume(runId));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @PostMapping("/{runId}/cancel")
+    public ResponseEntity<Void> cancel(@PathVariable UUID runId) {
+        try {
+            backfillService.cancel(runId);
+            return ResponseEntity.accepted().build();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+}
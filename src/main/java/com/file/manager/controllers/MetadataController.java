@@ -0,0 +1,82 @@
+package com.file.manager.controllers;
+
+import com.file.manager.dto.CursorPage;
+import com.file.manager.dto.MetadataQuery;
+import com.file.manager.dto.MetadataResponse;
+import com.file.manager.dto.SimilarFile;
+import com.file.manager.services.MetadataQueryService;
+import com.file.manager.services.SimilarityService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+// Callers only see their own files: the principal name is the owner id. ADMIN may query across owners.
+@RestController
+@RequestMapping("/metadata")
+@RequiredArgsConstructor
+public class MetadataController {
+
+    private final MetadataQueryService metadataQueryService;
+    private final SimilarityService similarityService;
+
+    @GetMapping("/{fileId}")
+    public MetadataResponse get(@PathVariable UUID fileId, Authentication authentication) {
+        return visible(fileId, ownerScope(authentication));
+    }
+
+    @GetMapping("/{fileId}/similar")
+    public List<SimilarFile> similar(@PathVariable UUID fileId, @RequestParam(defaultValue = "10") int k,
+                                     Authentication authentication) {
+        UUID owner = ownerScope(authentication);
+        visible(fileId, owner);
+        return similarityService.similarTo(fileId, k, owner)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No embedding for file " + fileId));
+    }
+
+    // e.g. /metadata?tag=invoice&sensitive=true&ownerId=...&limit=100&cursor=...
+    @GetMapping
+    public CursorPage<MetadataResponse> search(MetadataQuery query,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit,
+                                               Authentication authentication) {
+        UUID owner = ownerScope(authentication);
+        if (owner != null) {
+            if (query.getOwnerId() != null && !query.getOwnerId().equals(owner)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only ADMIN may query other owners");
+            }
+            query.setOwnerId(owner);
+        }
+        try {
+            return metadataQueryService.search(query, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Another owner's file answers like a missing one, so file ids cannot be probed
+    private MetadataResponse visible(UUID fileId, UUID owner) {
+        return metadataQueryService.findByFileId(fileId)
+                .filter(response -> owner == null || Objects.equals(owner, response.getOwnerId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No metadata for file " + fileId));
+    }
+
+    // null for ADMIN (every owner), otherwise the caller's own owner id
+    private static UUID ownerScope(Authentication authentication) {
+        boolean admin = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch("ROLE_ADMIN"::equals);
+        if (admin) return null;
+        try {
+            return UUID.fromString(authentication.getName());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Principal is not an owner id");
+        }
+    }
+}
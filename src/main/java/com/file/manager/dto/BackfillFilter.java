@@ -0,0 +1,25 @@
+package com.file.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Which files a backfill run re-analyzes; unset fields do not filter
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BackfillFilter {
+
+    // Exact types ("application/pdf") or families ("image/*")
+    private List<String> mimeTypes;
+    private UUID ownerId;
+    private UUID folderId;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+}
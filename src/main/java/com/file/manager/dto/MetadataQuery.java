@@ -0,0 +1,22 @@
+package com.file.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+// Filters for searching metadata; unset fields do not filter
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetadataQuery {
+
+    // Exact tag, as stored
+    private String tag;
+    private Boolean sensitive;
+    private Boolean confidential;
+    private UUID ownerId;
+}
@@ -0,0 +1,25 @@
+package com.file.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetadataResponse {
+    private UUID fileId;
+    private UUID ownerId;
+    private List<String> tags;
+    private String summary;
+    private boolean sensitiveFlag;
+    private boolean confidentialFlag;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
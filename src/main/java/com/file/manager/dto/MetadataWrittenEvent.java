@@ -0,0 +1,14 @@
+package com.file.manager.dto;
+
+import com.file.manager.models.Metadata;
+
+import java.util.List;
+import java.util.UUID;
+
+// Published by MetadataWriter once a batch is committed, one row per file
+public record MetadataWrittenEvent(List<Metadata> rows) {
+
+    public List<UUID> fileIds() {
+        return rows.stream().map(Metadata::getFileId).toList();
+    }
+}
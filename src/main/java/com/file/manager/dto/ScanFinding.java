@@ -0,0 +1,14 @@
+package com.file.manager.dto;
+
+import com.file.manager.enums.FindingType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ScanFinding {
+    private FindingType type;
+    // Offsets into the scanned text, end exclusive
+    private int start;
+    private int end;
+}
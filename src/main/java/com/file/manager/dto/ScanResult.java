@@ -0,0 +1,28 @@
+package com.file.manager.dto;
+
+import com.file.manager.enums.FindingType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ScanResult {
+
+    public static final ScanResult EMPTY = new ScanResult(List.of());
+
+    private List<ScanFinding> findings;
+
+    public boolean isSensitive() {
+        return has(FindingType.Category.SENSITIVE);
+    }
+
+    public boolean isConfidential() {
+        return has(FindingType.Category.CONFIDENTIAL);
+    }
+
+    private boolean has(FindingType.Category category) {
+        return findings.stream().anyMatch(f -> f.getType().getCategory() == category);
+    }
+}
@@ -0,0 +1,16 @@
+package com.file.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarFile {
+    private UUID fileId;
+    // Cosine similarity of the embeddings, 1 is identical
+    private float score;
+}
@@ -17,4 +17,6 @@ public class SummaryResponse {
     private List<String> tags;
     private boolean isSensitive;
     private boolean isConfidential;
+    // Not a model answer (the input was rejected); saved, but never cached for reuse
+    private boolean degraded;
 }
@@ -0,0 +1,8 @@
+package com.file.manager.enums;
+
+public enum AnalysisMode {
+    // One prompt returning summary, tags and both flags as a JSON object
+    STRUCTURED,
+    // One prompt per field (summary, tags, sensitive, confidential)
+    PER_PROMPT
+}
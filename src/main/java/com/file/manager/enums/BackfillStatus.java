@@ -0,0 +1,8 @@
+package com.file.manager.enums;
+
+public enum BackfillStatus {
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED
+}
@@ -0,0 +1,8 @@
+package com.file.manager.enums;
+
+public enum FailureKind {
+    // Throttling, timeouts, network or database trouble: worth another attempt after a backoff
+    RETRYABLE,
+    // Corrupt or unsupported input: every attempt would fail the same way, so it goes to details.dead_letter
+    PERMANENT
+}
@@ -4,5 +4,20 @@ public enum FileType {
 IMAGE,
     PDF,
     TXT,
-    OTHER
+    OTHER;
+
+    public static FileType fromMimeType(String mimeType){
+        if(mimeType == null){
+            return OTHER;
+        }else if(mimeType.equalsIgnoreCase("application/pdf")){
+            return PDF;
+
+        }else if(mimeType.equalsIgnoreCase("text/plain")){
+            return TXT;
+        }else if(mimeType.startsWith("image/")){
+            return IMAGE;
+        }else{
+            return OTHER;
+        }
+    }
 }
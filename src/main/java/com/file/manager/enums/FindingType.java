@@ -0,0 +1,32 @@
+package com.file.manager.enums;
+
+public enum FindingType {
+    // Business keywords: invoice, contract, bank, ...
+    CONFIDENTIAL_KEYWORD(Category.CONFIDENTIAL),
+    // Identity documents: passport, driver license, ssn, aadhaar, ...
+    IDENTITY_KEYWORD(Category.SENSITIVE),
+    // 13-19 digits that pass the Luhn check
+    CARD_NUMBER(Category.SENSITIVE),
+    // ddd-dd-dddd
+    NATIONAL_ID(Category.SENSITIVE),
+    // Long mixed letter/digit tokens, e.g. API keys
+    SECRET_TOKEN(Category.CONFIDENTIAL),
+    // dd/mm/yyyy and friends; too common on their own to decide a flag
+    DATE(Category.WEAK);
+
+    public enum Category {
+        SENSITIVE,
+        CONFIDENTIAL,
+        WEAK
+    }
+
+    private final Category category;
+
+    FindingType(Category category) {
+        this.category = category;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+}
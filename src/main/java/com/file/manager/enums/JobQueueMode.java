@@ -0,0 +1,8 @@
+package com.file.manager.enums;
+
+public enum JobQueueMode {
+    // Pollers process SQS messages themselves; jobs are only tracked
+    DIRECT,
+    // Pollers turn SQS messages into PENDING jobs; workers on any node claim them from Postgres
+    QUEUE
+}
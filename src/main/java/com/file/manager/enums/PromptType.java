@@ -0,0 +1,40 @@
+package com.file.manager.enums;
+
+import java.util.Locale;
+
+// Every kind of Bedrock text prompt; each can be routed to its own model under aws.bedrock.prompts.<config key>
+public enum PromptType {
+    STRUCTURED(400, 0.0),
+    SUMMARY(200, 0.0),
+    REDUCE(200, 0.0),
+    TAGS(200, 0.0),
+    SENSITIVE(200, 0.0),
+    CONFIDENTIAL(200, 0.0),
+    IMAGE_SUMMARY(200, 0.7);
+
+    private final int defaultMaxTokens;
+    private final double defaultTemperature;
+
+    PromptType(int defaultMaxTokens, double defaultTemperature) {
+        this.defaultMaxTokens = defaultMaxTokens;
+        this.defaultTemperature = defaultTemperature;
+    }
+
+    public int defaultMaxTokens() {
+        return defaultMaxTokens;
+    }
+
+    public double defaultTemperature() {
+        return defaultTemperature;
+    }
+
+    // Metric tag, e.g. bedrock.image_summary
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    // Property name, e.g. aws.bedrock.prompts.image-summary
+    public String configKey() {
+        return key().replace('_', '-');
+    }
+}
@@ -0,0 +1,8 @@
+package com.file.manager.enums;
+
+public enum TagStorage {
+    // filesystem.metadata_ai_tag rows, one per tag
+    COLLECTION,
+    // filesystem.metadata.ai_tags text[] column, one insert per file
+    ARRAY
+}
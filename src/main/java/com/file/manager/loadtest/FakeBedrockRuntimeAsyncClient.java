@@ -0,0 +1,154 @@
+package com.file.manager.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Titan-shaped responses to the prompts BedrockService and ImageFileService send:
+ * a JSON object for the structured prompt, true/false for flag questions, a tag list
+ * for the tags prompt, filler words for everything else, and bag-of-words vectors for
+ * embedding requests.
+ */
+class FakeBedrockRuntimeAsyncClient implements BedrockRuntimeAsyncClient {
+
+    private static final String[] WORDS = {
+            "quarterly", "financial", "report", "covering", "revenue", "costs", "customer", "orders",
+            "payment", "terms", "and", "project", "schedule", "with", "review", "notes", "for", "approval"
+    };
+
+    private final FakeServiceBehavior behavior;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectMapper objectMapper;
+    private final int outputWords;
+
+    FakeBedrockRuntimeAsyncClient(FakeServiceBehavior behavior, ScheduledExecutorService scheduler,
+                                  ObjectMapper objectMapper, int outputWords) {
+        this.behavior = behavior;
+        this.scheduler = scheduler;
+        this.objectMapper = objectMapper;
+        this.outputWords = outputWords;
+    }
+
+    @Override
+    public CompletableFuture<InvokeModelResponse> invokeModel(InvokeModelRequest request) {
+        String prompt;
+        int dimensions;
+        try {
+            JsonNode body = objectMapper.readTree(request.body().asUtf8String());
+            prompt = body.path("inputText").asText("");
+            dimensions = body.path("dimensions").asInt(0);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(SdkClientException.create("Fake Bedrock could not read request", e));
+        }
+
+        if (dimensions > 0) {
+            return behavior.respond(scheduler, () -> embeddingResponse(prompt, dimensions));
+        }
+
+        return behavior.respond(scheduler, () -> {
+            String output = answer(prompt);
+            try {
+                String json = objectMapper.writeValueAsString(Map.of(
+                        "inputTextTokenCount", prompt.length() / 4,
+                        "results", List.of(Map.of(
+                                "tokenCount", output.length() / 4,
+                                "outputText", output,
+                                "completionReason", "FINISH"))));
+                return InvokeModelResponse.builder()
+                        .contentType("application/json")
+                        .body(SdkBytes.fromUtf8String(json))
+                        .build();
+            } catch (Exception e) {
+                throw SdkClientException.create("Fake Bedrock could not write response", e);
+            }
+        });
+    }
+
+    private InvokeModelResponse embeddingResponse(String text, int dimensions) {
+        try {
+            String json = objectMapper.writeValueAsString(Map.of(
+                    "embedding", embedding(text, dimensions),
+                    "inputTextTokenCount", text.length() / 4));
+            return InvokeModelResponse.builder()
+                    .contentType("application/json")
+                    .body(SdkBytes.fromUtf8String(json))
+                    .build();
+        } catch (Exception e) {
+            throw SdkClientException.create("Fake Bedrock could not write response", e);
+        }
+    }
+
+    // Sum of a fixed random vector per word, normalized: texts sharing words come out similar
+    private static float[] embedding(String text, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (String word : text.toLowerCase().split("\\W+")) {
+            if (word.isEmpty()) continue;
+            Random random = new Random(word.hashCode());
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] += (float) random.nextGaussian();
+            }
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] /= (float) Math.sqrt(norm);
+            }
+        }
+        return vector;
+    }
+
+    private String answer(String prompt) {
+        if (prompt.contains("respond with ONLY a JSON object")) {
+            try {
+                return objectMapper.writeValueAsString(Map.of(
+                        "summary", words(outputWords),
+                        "tags", List.of("finance", "report", "customer", "payment", "schedule"),
+                        "sensitive", false,
+                        "confidential", ThreadLocalRandom.current().nextBoolean()));
+            } catch (Exception e) {
+                throw SdkClientException.create("Fake Bedrock could not write answer", e);
+            }
+        }
+        if (prompt.contains("Choose from the following")) {
+            return ThreadLocalRandom.current().nextBoolean() ? "true" : "false";
+        }
+        if (prompt.contains("comma separated")) {
+            return "finance, report, customer, payment, schedule";
+        }
+        return words(outputWords);
+    }
+
+    private static String words(int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(' ');
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.append('.').toString();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
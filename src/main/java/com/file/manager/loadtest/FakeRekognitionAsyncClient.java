@@ -0,0 +1,87 @@
+package com.file.manager.loadtest;
+
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Labels, moderation and OCR answers for any image, after the configured latency.
+ */
+class FakeRekognitionAsyncClient implements RekognitionAsyncClient {
+
+    private static final String[] LABELS = {
+            "Document", "Text", "Paper", "Receipt", "Person", "Outdoors", "Building", "Screen", "Table", "Logo"
+    };
+    private static final String[] WORDS = {
+            "total", "amount", "order", "date", "store", "item", "price", "tax", "thank", "you", "visit", "again"
+    };
+
+    private final FakeServiceBehavior behavior;
+    private final ScheduledExecutorService scheduler;
+    private final int textLines;
+    private final double moderationRate;
+
+    FakeRekognitionAsyncClient(FakeServiceBehavior behavior, ScheduledExecutorService scheduler,
+                               int textLines, double moderationRate) {
+        this.behavior = behavior;
+        this.scheduler = scheduler;
+        this.textLines = textLines;
+        this.moderationRate = moderationRate;
+    }
+
+    @Override
+    public CompletableFuture<DetectLabelsResponse> detectLabels(DetectLabelsRequest request) {
+        int max = request.maxLabels() == null ? LABELS.length : Math.min(request.maxLabels(), LABELS.length);
+        return behavior.respond(scheduler, () -> {
+            List<Label> labels = new ArrayList<>();
+            for (int i = 0; i < max; i++) {
+                labels.add(Label.builder().name(LABELS[i]).confidence(99.0f - i).build());
+            }
+            return DetectLabelsResponse.builder().labels(labels).build();
+        });
+    }
+
+    @Override
+    public CompletableFuture<DetectModerationLabelsResponse> detectModerationLabels(DetectModerationLabelsRequest request) {
+        return behavior.respond(scheduler, () -> DetectModerationLabelsResponse.builder()
+                .moderationLabels(ThreadLocalRandom.current().nextDouble() < moderationRate
+                        ? List.of(ModerationLabel.builder().name("Suggestive").confidence(95.0f).build())
+                        : List.of())
+                .build());
+    }
+
+    @Override
+    public CompletableFuture<DetectTextResponse> detectText(DetectTextRequest request) {
+        return behavior.respond(scheduler, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<TextDetection> detections = new ArrayList<>();
+            for (int line = 0; line < textLines; line++) {
+                StringBuilder text = new StringBuilder();
+                for (int w = 0, words = 2 + random.nextInt(5); w < words; w++) {
+                    if (w > 0) text.append(' ');
+                    text.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                detections.add(TextDetection.builder()
+                        .detectedText(text.toString())
+                        .type(TextTypes.LINE)
+                        .confidence(98.0f)
+                        .build());
+            }
+            return DetectTextResponse.builder().textDetections(detections).build();
+        });
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,106 @@
+package com.file.manager.loadtest;
+
+import org.springframework.core.env.Environment;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency and failure model for one faked AWS service. Latencies are log-normal,
+ * fitted to the configured p50 and p99, which is close to what the real services show
+ * (long right tail). Throttles look like the real thing to AdaptiveRateLimiter.
+ */
+class FakeServiceBehavior {
+
+    // z-score of the 99th percentile of a standard normal
+    private static final double Z_99 = 2.326;
+
+    private final String service;
+    private final double mu;
+    private final double sigma;
+    private final double throttleRate;
+    private final double errorRate;
+
+    FakeServiceBehavior(String service, double p50Ms, double p99Ms, double throttleRate, double errorRate) {
+        this.service = service;
+        this.mu = Math.log(Math.max(p50Ms, 0.001));
+        this.sigma = Math.max(0, (Math.log(Math.max(p99Ms, p50Ms)) - mu) / Z_99);
+        this.throttleRate = throttleRate;
+        this.errorRate = errorRate;
+    }
+
+    // Reads loadtest.<service>.*
+    static FakeServiceBehavior from(String service, Environment env, double defaultP50Ms, double defaultP99Ms) {
+        String prefix = "loadtest." + service + ".";
+        return new FakeServiceBehavior(
+                service,
+                env.getProperty(prefix + "latency-p50-ms", Double.class, defaultP50Ms),
+                env.getProperty(prefix + "latency-p99-ms", Double.class, defaultP99Ms),
+                env.getProperty(prefix + "throttle-rate", Double.class, 0.0),
+                env.getProperty(prefix + "error-rate", Double.class, 0.0)
+        );
+    }
+
+    long sampleDelayMillis() {
+        double gaussian = ThreadLocalRandom.current().nextGaussian();
+        return Math.round(Math.exp(mu + sigma * gaussian));
+    }
+
+    // Sync clients: block the calling thread like the real HTTP call would
+    void await() {
+        try {
+            Thread.sleep(sampleDelayMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during fake " + service + " call", e);
+        }
+        AwsServiceException failure = sampleFailure();
+        if (failure != null) throw failure;
+    }
+
+    // Async clients: complete on the scheduler after the sampled latency, no thread held meanwhile
+    <T> CompletableFuture<T> respond(ScheduledExecutorService scheduler, Supplier<T> response) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+            AwsServiceException failure = sampleFailure();
+            if (failure != null) {
+                future.completeExceptionally(failure);
+                return;
+            }
+            try {
+                future.complete(response.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }, sampleDelayMillis(), TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private AwsServiceException sampleFailure() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < throttleRate) {
+            return error(400, "ThrottlingException", "Rate exceeded");
+        }
+        if (roll < throttleRate + errorRate) {
+            return error(500, "InternalServerException", "Injected failure");
+        }
+        return null;
+    }
+
+    private AwsServiceException error(int status, String code, String message) {
+        return AwsServiceException.builder()
+                .statusCode(status)
+                .message(message)
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .serviceName(service)
+                        .errorCode(code)
+                        .errorMessage(message)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,266 @@
+package com.file.manager.loadtest;
+
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+
+/**
+ * A single in-memory SQS queue with visibility timeouts, receipt handles, long polling
+ * and receive counts, which is everything FileScheduler and SqsMessageAcknowledger use.
+ * Every delete reports the message's time in the queue, send to delete, to the listener.
+ */
+class InMemorySqsClient implements SqsClient {
+
+    private static final int DEFAULT_VISIBILITY_SECONDS = 30;
+
+    private final FakeServiceBehavior behavior;
+    private final Object lock = new Object();
+
+    private final Map<String, Stored> byId = new HashMap<>();
+    private final Map<String, Stored> byReceiptHandle = new HashMap<>();
+    // Visibility schedule; an entry whose version is behind its message's is stale and skipped
+    private final PriorityQueue<Slot> schedule = new PriorityQueue<>(Comparator.comparingLong(Slot::visibleAt));
+
+    private volatile LongConsumer deleteListener = latencyMillis -> { };
+
+    InMemorySqsClient(FakeServiceBehavior behavior) {
+        this.behavior = behavior;
+    }
+
+    void onDelete(LongConsumer listener) {
+        this.deleteListener = listener;
+    }
+
+    int size() {
+        synchronized (lock) {
+            return byId.size();
+        }
+    }
+
+    @Override
+    public SendMessageResponse sendMessage(SendMessageRequest request) {
+        behavior.await();
+        return SendMessageResponse.builder().messageId(enqueue(request.messageBody(), delaySeconds(request.delaySeconds()))).build();
+    }
+
+    @Override
+    public SendMessageBatchResponse sendMessageBatch(SendMessageBatchRequest request) {
+        behavior.await();
+        List<SendMessageBatchResultEntry> successful = new ArrayList<>();
+        for (SendMessageBatchRequestEntry entry : request.entries()) {
+            String messageId = enqueue(entry.messageBody(), delaySeconds(entry.delaySeconds()));
+            successful.add(SendMessageBatchResultEntry.builder().id(entry.id()).messageId(messageId).build());
+        }
+        return SendMessageBatchResponse.builder().successful(successful).failed(List.of()).build();
+    }
+
+    @Override
+    public ReceiveMessageResponse receiveMessage(ReceiveMessageRequest request) {
+        behavior.await();
+
+        int max = request.maxNumberOfMessages() == null ? 1 : request.maxNumberOfMessages();
+        long visibilityMillis = 1000L * (request.visibilityTimeout() == null ? DEFAULT_VISIBILITY_SECONDS : request.visibilityTimeout());
+        long deadline = System.currentTimeMillis() + 1000L * (request.waitTimeSeconds() == null ? 0 : request.waitTimeSeconds());
+
+        synchronized (lock) {
+            while (true) {
+                long now = System.currentTimeMillis();
+                List<Message> received = takeVisible(max, now, visibilityMillis);
+                if (!received.isEmpty() || now >= deadline) {
+                    return ReceiveMessageResponse.builder().messages(received).build();
+                }
+
+                // Long poll: sleep until the deadline, the next message becomes visible, or a send wakes us
+                long wait = deadline - now;
+                Slot next = schedule.peek();
+                if (next != null) wait = Math.min(wait, Math.max(1, next.visibleAt() - now));
+                try {
+                    lock.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return ReceiveMessageResponse.builder().messages(List.of()).build();
+                }
+            }
+        }
+    }
+
+    @Override
+    public DeleteMessageResponse deleteMessage(DeleteMessageRequest request) {
+        behavior.await();
+        if (!delete(request.receiptHandle())) {
+            throw ReceiptHandleIsInvalidException.builder().message("Unknown receipt handle").build();
+        }
+        return DeleteMessageResponse.builder().build();
+    }
+
+    @Override
+    public DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest request) {
+        behavior.await();
+        List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+        List<BatchResultErrorEntry> failed = new ArrayList<>();
+        for (DeleteMessageBatchRequestEntry entry : request.entries()) {
+            if (delete(entry.receiptHandle())) {
+                successful.add(DeleteMessageBatchResultEntry.builder().id(entry.id()).build());
+            } else {
+                failed.add(invalidHandle(entry.id()));
+            }
+        }
+        return DeleteMessageBatchResponse.builder().successful(successful).failed(failed).build();
+    }
+
+    @Override
+    public ChangeMessageVisibilityResponse changeMessageVisibility(ChangeMessageVisibilityRequest request) {
+        behavior.await();
+        if (!changeVisibility(request.receiptHandle(), request.visibilityTimeout())) {
+            throw ReceiptHandleIsInvalidException.builder().message("Unknown receipt handle").build();
+        }
+        return ChangeMessageVisibilityResponse.builder().build();
+    }
+
+    @Override
+    public ChangeMessageVisibilityBatchResponse changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest request) {
+        behavior.await();
+        List<ChangeMessageVisibilityBatchResultEntry> successful = new ArrayList<>();
+        List<BatchResultErrorEntry> failed = new ArrayList<>();
+        for (ChangeMessageVisibilityBatchRequestEntry entry : request.entries()) {
+            if (changeVisibility(entry.receiptHandle(), entry.visibilityTimeout())) {
+                successful.add(ChangeMessageVisibilityBatchResultEntry.builder().id(entry.id()).build());
+            } else {
+                failed.add(invalidHandle(entry.id()));
+            }
+        }
+        return ChangeMessageVisibilityBatchResponse.builder().successful(successful).failed(failed).build();
+    }
+
+    @Override
+    public GetQueueAttributesResponse getQueueAttributes(GetQueueAttributesRequest request) {
+        behavior.await();
+        long now = System.currentTimeMillis();
+        int visible = 0;
+        int notVisible = 0;
+        synchronized (lock) {
+            for (Stored message : byId.values()) {
+                if (message.visibleAt <= now) visible++;
+                else notVisible++;
+            }
+        }
+        return GetQueueAttributesResponse.builder()
+                .attributes(Map.of(
+                        QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, String.valueOf(visible),
+                        QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE, String.valueOf(notVisible)))
+                .build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private String enqueue(String body, int delaySeconds) {
+        Stored message = new Stored(UUID.randomUUID().toString(), body, System.currentTimeMillis());
+        synchronized (lock) {
+            byId.put(message.id, message);
+            reschedule(message, message.sentAt + 1000L * delaySeconds);
+            lock.notifyAll();
+        }
+        return message.id;
+    }
+
+    // Caller holds the lock
+    private List<Message> takeVisible(int max, long now, long visibilityMillis) {
+        List<Message> received = new ArrayList<>();
+        while (received.size() < max && !schedule.isEmpty() && schedule.peek().visibleAt() <= now) {
+            Slot slot = schedule.poll();
+            Stored message = slot.message();
+            if (slot.version() != message.version || !byId.containsKey(message.id)) continue;
+
+            if (message.receiptHandle != null) byReceiptHandle.remove(message.receiptHandle);
+            message.receiptHandle = UUID.randomUUID().toString();
+            message.receiveCount++;
+            byReceiptHandle.put(message.receiptHandle, message);
+            reschedule(message, now + visibilityMillis);
+
+            received.add(Message.builder()
+                    .messageId(message.id)
+                    .receiptHandle(message.receiptHandle)
+                    .body(message.body)
+                    .attributes(Map.of(
+                            MessageSystemAttributeName.SENT_TIMESTAMP, String.valueOf(message.sentAt),
+                            MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT, String.valueOf(message.receiveCount)))
+                    .build());
+        }
+        return received;
+    }
+
+    private boolean delete(String receiptHandle) {
+        Stored message;
+        synchronized (lock) {
+            message = byReceiptHandle.remove(receiptHandle);
+            if (message == null) return false;
+            byId.remove(message.id);
+        }
+        deleteListener.accept(System.currentTimeMillis() - message.sentAt);
+        return true;
+    }
+
+    private boolean changeVisibility(String receiptHandle, Integer visibilityTimeout) {
+        synchronized (lock) {
+            Stored message = byReceiptHandle.get(receiptHandle);
+            if (message == null) return false;
+            reschedule(message, System.currentTimeMillis() + 1000L * (visibilityTimeout == null ? 0 : visibilityTimeout));
+            lock.notifyAll();
+            return true;
+        }
+    }
+
+    // Caller holds the lock
+    private void reschedule(Stored message, long visibleAt) {
+        message.version++;
+        message.visibleAt = visibleAt;
+        schedule.add(new Slot(visibleAt, message.version, message));
+    }
+
+    private static int delaySeconds(Integer delaySeconds) {
+        return delaySeconds == null ? 0 : delaySeconds;
+    }
+
+    private static BatchResultErrorEntry invalidHandle(String entryId) {
+        return BatchResultErrorEntry.builder()
+                .id(entryId)
+                .code("ReceiptHandleIsInvalid")
+                .message("Unknown receipt handle")
+                .senderFault(true)
+                .build();
+    }
+
+    private static final class Stored {
+        final String id;
+        final String body;
+        final long sentAt;
+        String receiptHandle;
+        int receiveCount;
+        long version;
+        long visibleAt;
+
+        Stored(String id, String body, long sentAt) {
+            this.id = id;
+            this.body = body;
+            this.sentAt = sentAt;
+        }
+    }
+
+    private record Slot(long visibleAt, long version, Stored message) {
+    }
+}
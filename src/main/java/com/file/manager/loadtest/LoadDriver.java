@@ -0,0 +1,220 @@
+package com.file.manager.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.manager.dto.FileDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes file events into the in-memory queue at a fixed rate and reports throughput
+ * and end-to-end latency (send to delete, i.e. metadata committed) as the run goes.
+ * Events are replayed from a JSON-lines file of FileDto when one is configured,
+ * otherwise generated from the image ratio and size mix below.
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+public class LoadDriver {
+
+    private static final int MAX_BATCH = 10; // SQS send limit
+
+    @Autowired
+    private InMemorySqsClient sqsClient;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${aws.sqs.queue-url}")
+    private String queueUrl;
+
+    @Value("${loadtest.driver.rate-per-second:20}")
+    private double ratePerSecond;
+
+    @Value("${loadtest.driver.duration-seconds:300}")
+    private long durationSeconds;
+
+    @Value("${loadtest.driver.image-ratio:0.5}")
+    private double imageRatio;
+
+    // Object sizes for generated documents, picked uniformly
+    @Value("${loadtest.driver.file-sizes:4096,65536,1048576}")
+    private List<Integer> fileSizes;
+
+    @Value("${loadtest.driver.messages-file:}")
+    private String messagesFile;
+
+    @Value("${loadtest.driver.report-interval-seconds:10}")
+    private long reportIntervalSeconds;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private Timer endToEnd;
+    private Thread driver;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws Exception {
+        // Cumulative over the whole run rather than Micrometer's default rolling window
+        endToEnd = Timer.builder("loadtest.e2e")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .distributionStatisticExpiry(Duration.ofSeconds(durationSeconds * 2 + 600))
+                .distributionStatisticBufferLength(1)
+                .register(meterRegistry);
+        sqsClient.onDelete(latencyMillis -> {
+            completed.incrementAndGet();
+            endToEnd.record(latencyMillis, TimeUnit.MILLISECONDS);
+        });
+
+        List<FileDto> recorded = messagesFile.isBlank() ? List.of() : readRecorded(Path.of(messagesFile));
+
+        driver = new Thread(() -> run(recorded), "load-driver");
+        driver.setDaemon(true);
+        driver.start();
+        log.info("Load test: {} files/s for {}s ({})", ratePerSecond, durationSeconds,
+                recorded.isEmpty() ? "synthetic files" : recorded.size() + " recorded files");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (driver != null) driver.interrupt();
+    }
+
+    private void run(List<FileDto> recorded) {
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long nextReport = startNanos + TimeUnit.SECONDS.toNanos(reportIntervalSeconds);
+        long lastCompleted = 0;
+        long lastReport = startNanos;
+
+        try {
+            // Open-loop pacing: the send schedule does not slow down when the service does
+            for (long i = 0; ; i += MAX_BATCH) {
+                long due = startNanos + i * intervalNanos;
+                if (due >= endNanos) break;
+                sleepUntil(due);
+
+                List<SendMessageBatchRequestEntry> entries = new ArrayList<>();
+                for (int b = 0; b < MAX_BATCH && due + b * intervalNanos < endNanos; b++) {
+                    FileDto file = recorded.isEmpty()
+                            ? synthetic()
+                            : fresh(recorded.get((int) ((i + b) % recorded.size())));
+                    entries.add(SendMessageBatchRequestEntry.builder()
+                            .id(String.valueOf(b))
+                            .messageBody(objectMapper.writeValueAsString(file))
+                            .build());
+                }
+                sqsClient.sendMessageBatch(r -> r.queueUrl(queueUrl).entries(entries));
+                sent.addAndGet(entries.size());
+
+                long now = System.nanoTime();
+                if (now >= nextReport) {
+                    long done = completed.get();
+                    report("progress", (done - lastCompleted) / nanosToSeconds(now - lastReport));
+                    lastCompleted = done;
+                    lastReport = now;
+                    nextReport = now + TimeUnit.SECONDS.toNanos(reportIntervalSeconds);
+                }
+            }
+
+            // Let the backlog drain before the final numbers
+            long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(60, durationSeconds));
+            while (sqsClient.size() > 0 && System.nanoTime() < drainDeadline) {
+                Thread.sleep(1000);
+            }
+            report("final", completed.get() / nanosToSeconds(System.nanoTime() - startNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Load driver stopped", e);
+        }
+    }
+
+    private void report(String phase, double filesPerSecond) {
+        HistogramSnapshot snapshot = endToEnd.takeSnapshot();
+        StringBuilder percentiles = new StringBuilder();
+        for (ValueAtPercentile p : snapshot.percentileValues()) {
+            percentiles.append(String.format(" p%s=%.0fms", trimPercentile(p.percentile()), p.value(TimeUnit.MILLISECONDS)));
+        }
+        log.info("Load test {}: sent={} completed={} backlog={} throughput={} files/s{}",
+                phase, sent.get(), completed.get(), sqsClient.size(), String.format("%.1f", filesPerSecond), percentiles);
+    }
+
+    private FileDto synthetic() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean image = random.nextDouble() < imageRatio;
+        int size = image ? 512 * 1024 : fileSizes.get(random.nextInt(fileSizes.size()));
+        UUID id = UUID.randomUUID();
+        return FileDto.builder()
+                .id(id)
+                .name(id + (image ? ".jpg" : ".txt"))
+                .mimeType(image ? "image/jpeg" : "text/plain")
+                .fileSize((long) size)
+                .ownerId(UUID.nameUUIDFromBytes(String.valueOf(random.nextInt(20)).getBytes()))
+                .s3Key("loadtest/" + size + "/" + id + (image ? ".jpg" : ".txt"))
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    // Replayed events get new ids so each one produces its own metadata row
+    private FileDto fresh(FileDto recorded) {
+        return FileDto.builder()
+                .id(UUID.randomUUID())
+                .name(recorded.getName())
+                .fileUrl(recorded.getFileUrl())
+                .mimeType(recorded.getMimeType())
+                .fileSize(recorded.getFileSize())
+                .ownerId(recorded.getOwnerId())
+                .folderId(recorded.getFolderId())
+                .folderPath(recorded.getFolderPath())
+                .s3Key(recorded.getS3Key())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private List<FileDto> readRecorded(Path path) throws Exception {
+        List<FileDto> files = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            if (!line.isBlank()) files.add(objectMapper.readValue(line, FileDto.class));
+        }
+        if (files.isEmpty()) throw new IllegalArgumentException("No file events in " + path);
+        return files;
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long wait = nanoTime - System.nanoTime();
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    private static double nanosToSeconds(long nanos) {
+        return Math.max(nanos, 1) / 1e9;
+    }
+
+    private static String trimPercentile(double percentile) {
+        return String.format("%.1f", percentile * 100).replaceAll("\\.0$", "");
+    }
+}
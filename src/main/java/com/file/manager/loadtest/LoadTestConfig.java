@@ -0,0 +1,59 @@
+package com.file.manager.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+// In-process stand-ins for the AWS beans in AwsConfig, tuned by loadtest.<service>.*
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfig {
+
+    // Completes the fake async calls. Not a bean: a second ScheduledExecutorService bean
+    // would leave @Scheduled unable to pick one.
+    private final ScheduledExecutorService fakeAwsScheduler =
+            Executors.newScheduledThreadPool(4, new CustomizableThreadFactory("fake-aws-"));
+
+    @PreDestroy
+    public void stop() {
+        fakeAwsScheduler.shutdownNow();
+    }
+
+    @Bean
+    InMemorySqsClient sqsClient(Environment env) {
+        return new InMemorySqsClient(FakeServiceBehavior.from("sqs", env, 5, 30));
+    }
+
+    @Bean
+    SyntheticS3Client s3Client(Environment env) {
+        return new SyntheticS3Client(
+                FakeServiceBehavior.from("s3", env, 20, 150),
+                env.getProperty("loadtest.s3.object-bytes", Integer.class, 64 * 1024),
+                env.getProperty("loadtest.s3.max-object-bytes", Integer.class, 32 * 1024 * 1024));
+    }
+
+    @Bean
+    FakeRekognitionAsyncClient rekognitionAsyncClient(Environment env) {
+        return new FakeRekognitionAsyncClient(
+                FakeServiceBehavior.from("rekognition", env, 300, 1200),
+                fakeAwsScheduler,
+                env.getProperty("loadtest.rekognition.text-lines", Integer.class, 12),
+                env.getProperty("loadtest.rekognition.moderation-rate", Double.class, 0.02));
+    }
+
+    @Bean
+    FakeBedrockRuntimeAsyncClient bedrockRuntimeAsyncClient(Environment env, ObjectMapper objectMapper) {
+        return new FakeBedrockRuntimeAsyncClient(
+                FakeServiceBehavior.from("bedrock", env, 800, 4000),
+                fakeAwsScheduler,
+                objectMapper,
+                env.getProperty("loadtest.bedrock.output-words", Integer.class, 30));
+    }
+}
@@ -0,0 +1,114 @@
+package com.file.manager.loadtest;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Serves plain-text objects for any key. The size comes from a numeric path segment
+ * ("loadtest/65536/abc.txt", as LoadDriver writes them) or the configured default;
+ * the ETag is derived from the key so the analysis cache sees every file as new.
+ */
+class SyntheticS3Client implements S3Client {
+
+    private static final String[] WORDS = {
+            "payment", "due", "total", "amount", "customer", "reference", "order", "date", "address",
+            "quantity", "price", "tax", "balance", "statement", "period", "terms", "section", "clause",
+            "report", "quarter", "revenue", "growth", "project", "schedule", "review", "approval"
+    };
+
+    private final FakeServiceBehavior behavior;
+    private final int defaultObjectBytes;
+    // Every object is a prefix of this buffer
+    private final byte[] body;
+
+    SyntheticS3Client(FakeServiceBehavior behavior, int defaultObjectBytes, int maxObjectBytes) {
+        this.behavior = behavior;
+        this.defaultObjectBytes = defaultObjectBytes;
+        this.body = generate(Math.max(defaultObjectBytes, maxObjectBytes));
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest request,
+                                       ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        behavior.await();
+
+        int length = sizeOf(request.key());
+        GetObjectResponse response = GetObjectResponse.builder()
+                .contentLength((long) length)
+                .contentType("text/plain")
+                .eTag(eTag(request.key()))
+                .build();
+        try {
+            return responseTransformer.transform(response,
+                    AbortableInputStream.create(new ByteArrayInputStream(body, 0, length)));
+        } catch (Exception e) {
+            throw SdkClientException.create("Fake S3 response transform failed", e);
+        }
+    }
+
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        return getObject(request, ResponseTransformer.toInputStream());
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        behavior.await();
+        return HeadObjectResponse.builder()
+                .contentLength((long) sizeOf(request.key()))
+                .contentType("text/plain")
+                .eTag(eTag(request.key()))
+                .build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private int sizeOf(String key) {
+        for (String segment : key.split("/")) {
+            if (!segment.isEmpty() && segment.chars().allMatch(Character::isDigit) && segment.length() < 10) {
+                return Math.min(Integer.parseInt(segment), body.length);
+            }
+        }
+        return defaultObjectBytes;
+    }
+
+    private static String eTag(String key) {
+        return "\"" + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "") + "\"";
+    }
+
+    // Sentences in paragraphs, a form feed every few paragraphs, like extracted document text
+    private static byte[] generate(int size) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(size + 256);
+        int paragraphs = 0;
+        while (text.length() < size) {
+            for (int s = 0, sentences = 2 + random.nextInt(5); s < sentences; s++) {
+                for (int w = 0, words = 6 + random.nextInt(12); w < words; w++) {
+                    text.append(WORDS[random.nextInt(WORDS.length)]).append(w == words - 1 ? ". " : " ");
+                }
+            }
+            text.append("\n\n");
+            if (++paragraphs % 8 == 0) text.append('\f');
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+}
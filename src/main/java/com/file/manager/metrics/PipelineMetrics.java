@@ -0,0 +1,139 @@
+package com.file.manager.metrics;
+
+import com.file.manager.enums.FileType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters for the file pipeline. Every stage is recorded under one timer name,
+ * {@code pipeline.stage}, tagged by stage and outcome, so stages can be compared
+ * side by side in Prometheus.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String SQS_RECEIVE = "sqs.receive";
+    public static final String S3_DOWNLOAD = "s3.download";
+    public static final String TIKA_EXTRACT = "tika.extract";
+    public static final String REKOGNITION_LABELS = "rekognition.labels";
+    public static final String REKOGNITION_MODERATION = "rekognition.moderation";
+    public static final String REKOGNITION_TEXT = "rekognition.text";
+    public static final String METADATA_SAVE = "metadata.save";
+    public static final String METADATA_FLUSH = "metadata.flush";
+    public static final String FILE_TOTAL = "file.total";
+
+    private final MeterRegistry registry;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static String bedrock(String promptType) {
+        return "bedrock." + promptType;
+    }
+
+    public <T> T time(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            T result = work.get();
+            outcome = "success";
+            return result;
+        } finally {
+            record(stage, outcome, System.nanoTime() - start);
+        }
+    }
+
+    public <T> T timeCallable(String stage, Callable<T> work) throws Exception {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            T result = work.call();
+            outcome = "success";
+            return result;
+        } finally {
+            record(stage, outcome, System.nanoTime() - start);
+        }
+    }
+
+    public <T> CompletableFuture<T> timeAsync(String stage, Supplier<CompletableFuture<T>> work) {
+        long start = System.nanoTime();
+        return work.get().whenComplete((result, error) ->
+                record(stage, error == null ? "success" : "failure", System.nanoTime() - start));
+    }
+
+    public void record(String stage, String outcome, long nanos) {
+        Timer.builder("pipeline.stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(Duration.ofNanos(nanos));
+    }
+
+    // Time between the producer sending the message and a poller receiving it
+    public void recordQueueLag(Duration lag) {
+        Timer.builder("sqs.message.lag")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(lag);
+    }
+
+    public void fileProcessed(String mimeType, String status) {
+        Counter.builder("pipeline.files")
+                .tag("file_type", fileTypeTag(mimeType))
+                .tag("status", status)
+                .register(registry)
+                .increment();
+    }
+
+    public void fallback(String kind, String mimeType) {
+        Counter.builder("pipeline.fallbacks")
+                .tag("kind", kind)
+                .tag("file_type", fileTypeTag(mimeType))
+                .register(registry)
+                .increment();
+    }
+
+    public void increment(String name, String... tags) {
+        Counter.builder(name)
+                .tags(tags)
+                .register(registry)
+                .increment();
+    }
+
+    public void increment(String name, double amount, String... tags) {
+        Counter.builder(name)
+                .tags(tags)
+                .register(registry)
+                .increment(amount);
+    }
+
+    public <T> void functionCounter(String name, T source, ToDoubleFunction<T> count, String... tags) {
+        FunctionCounter.builder(name, source, count)
+                .tags(tags)
+                .register(registry);
+    }
+
+    public <T> void gauge(String name, T source, ToDoubleFunction<T> value, String... tags) {
+        Gauge.builder(name, source, value)
+                .tags(tags)
+                .register(registry);
+    }
+
+    // Raw MIME types are client-supplied and unbounded; the file type keeps the tag to a handful of values
+    private static String fileTypeTag(String mimeType) {
+        return FileType.fromMimeType(mimeType).name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,50 @@
+package com.file.manager.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "analysis_cache", schema = "filesystem")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+public class AnalysisCacheEntry {
+
+    // <pipeline>:<model routing>:v<analysis version>:<S3 ETag>
+    @Id
+    @Column(nullable = false)
+    private String cacheKey;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "analysis_cache_ai_tag", schema = "filesystem", joinColumns = @JoinColumn(name = "cache_key"))
+    @Column(name = "ai_tag")
+    private java.util.List<String> aiTag;
+
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "embedding", columnDefinition = "real[]")
+    @ToString.Exclude
+    private float[] embedding;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Boolean sensitiveFlag = false;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Boolean confidentialFlag = false;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
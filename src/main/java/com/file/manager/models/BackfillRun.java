@@ -0,0 +1,49 @@
+package com.file.manager.models;
+
+import com.file.manager.enums.BackfillStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "backfill_run", schema = "filesystem")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+public class BackfillRun {
+    @Id
+    @Column(nullable = false)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BackfillStatus status;
+
+    // BackfillFilter JSON
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String filterJson;
+
+    // Keyset checkpoint: last (created_at, id) of filesystem.file fully processed
+    private LocalDateTime cursorCreatedAt;
+    private UUID cursorFileId;
+
+    private long processed;
+    private long failed;
+
+    // Node running it; updatedAt doubles as its heartbeat
+    private String owner;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,59 @@
+package com.file.manager.models;
+
+import com.file.manager.enums.FailureKind;
+import com.file.manager.enums.FileType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A file the pipeline gave up on, with why; the payload is kept so it can be replayed once the cause is fixed
+@Entity
+@Table(name = "dead_letter", schema = "details",
+        indexes = {
+                @Index(name = "idx_dead_letter_file_id", columnList = "file_id"),
+                @Index(name = "idx_dead_letter_reason_created", columnList = "reason, created_at")
+        })
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+public class DeadLetter {
+    // Same id as the job, i.e. derived from the SQS message id
+    @Id
+    @Column(nullable = false)
+    private UUID id;
+
+    // Null when the message itself could not be read
+    @Column(name = "file_id")
+    private UUID fileId;
+
+    @Enumerated(EnumType.STRING)
+    private FileType fileType;
+
+    // FileDto JSON, or the raw message body when it was unreadable
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private FailureKind failureKind;
+
+    @Column(nullable = false)
+    private String reason;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    private Integer attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
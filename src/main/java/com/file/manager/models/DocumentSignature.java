@@ -0,0 +1,49 @@
+package com.file.manager.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// MinHash signature of a file's extracted text; bands has a GIN index for the LSH lookup
+@Entity
+@Table(name = "document_signature", schema = "filesystem",
+        indexes = @Index(name = "idx_document_signature_owner_scope", columnList = "owner_id, scope"))
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+public class DocumentSignature {
+
+    @Id
+    @Column(nullable = false)
+    private UUID fileId;
+
+    // Analyses are only reused within one owner; a near-copy's summary can name another tenant's details
+    @Column(name = "owner_id")
+    private UUID ownerId;
+
+    // <pipeline>:<model routing>:v<analysis version>:<signature parameters>; only equal scopes are compared
+    @Column(nullable = false)
+    private String scope;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "signature", columnDefinition = "integer[]", nullable = false)
+    @ToString.Exclude
+    private int[] signature;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "bands", columnDefinition = "bigint[]", nullable = false)
+    @ToString.Exclude
+    private long[] bands;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
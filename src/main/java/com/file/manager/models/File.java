@@ -3,6 +3,7 @@ package com.file.manager.models;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -15,7 +16,11 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "file", schema = "filesystem")
+@Table(name = "file", schema = "filesystem",
+        indexes = {
+                @Index(name = "idx_file_created_id", columnList = "created_at, id"),
+                @Index(name = "idx_file_owner_id", columnList = "owner_id")
+        })
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
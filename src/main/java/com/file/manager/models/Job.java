@@ -13,12 +13,14 @@ import java.util.UUID;
 
 
 @Entity
-@Table(name = "job", schema = "details")
+@Table(name = "job", schema = "details",
+        indexes = @Index(name = "idx_job_status_created", columnList = "job_status, created_at"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Data
 public class Job {
+    // Derived from the SQS message id, so a redelivered message maps to the same job
     @Id
     @Column(nullable = false)
     private UUID id;
@@ -35,9 +37,20 @@ public class Job {
     @Column(nullable = false)
     private JobStatus jobStatus;
 
+    // Original FileDto JSON, so any node can process the job
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    // Node currently holding the job and until when; an expired lease makes the job claimable again
+    private String leaseOwner;
+
+    private LocalDateTime leaseExpiresAt;
+
+    private Integer attempts;
+
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
     @Column(nullable = false)
     private LocalDateTime updatedAt;
-}
\ No newline at end of file
+}
@@ -5,12 +5,18 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+// The unique index on file_id is built by MetadataIndexInitializer, after it removes duplicate rows.
+// The ai_tags text[] column (metadata.tag-storage=ARRAY) is only read and written over JDBC; the initializer adds it.
 @Entity
-@Table(name = "metadata", schema = "filesystem")
+@Table(name = "metadata", schema = "filesystem",
+        indexes = @Index(name = "idx_metadata_updated_at", columnList = "updated_at"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -25,13 +31,24 @@ public class Metadata {
     private UUID fileId;
 
     @ElementCollection
-    @CollectionTable(name = "metadata_ai_tag", schema = "filesystem", joinColumns = @JoinColumn(name = "metadata_id"))
+    // (ai_tag, metadata_id) is the inverted index for tag search
+    @CollectionTable(name = "metadata_ai_tag", schema = "filesystem", joinColumns = @JoinColumn(name = "metadata_id"),
+            indexes = {
+                    @Index(name = "idx_metadata_ai_tag_tag", columnList = "ai_tag, metadata_id"),
+                    @Index(name = "idx_metadata_ai_tag_metadata", columnList = "metadata_id")
+            })
     @Column(name = "ai_tag")
     private java.util.List<String> aiTag;
 
     @Column(columnDefinition = "TEXT")
     private String summary;
 
+    // Titan embedding of summary and tags, for similar-file search; null when embedding failed or is off
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "embedding", columnDefinition = "real[]")
+    @ToString.Exclude
+    private float[] embedding;
+
     @Column(nullable = false)
     private Boolean sensitiveFlag = false;
 
@@ -43,4 +60,8 @@ public class Metadata {
 
     @Column(nullable = false)
     private LocalDateTime updatedAt;
+
+    // Some part of the analysis is a local fallback rather than a model answer; saved, but never cached for reuse
+    @Transient
+    private boolean degraded;
 }
\ No newline at end of file
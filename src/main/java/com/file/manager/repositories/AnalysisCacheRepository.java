@@ -0,0 +1,7 @@
+package com.file.manager.repositories;
+
+import com.file.manager.models.AnalysisCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AnalysisCacheRepository extends JpaRepository<AnalysisCacheEntry, String> {
+}
@@ -0,0 +1,13 @@
+package com.file.manager.repositories;
+
+import com.file.manager.enums.BackfillStatus;
+import com.file.manager.models.BackfillRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface BackfillRunRepository extends JpaRepository<BackfillRun, UUID> {
+
+    List<BackfillRun> findByStatus(BackfillStatus status);
+}
@@ -3,6 +3,8 @@ package com.file.manager.repositories;
 import com.file.manager.models.Job;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface JobRepository extends JpaRepository<Job, Long> {
+import java.util.UUID;
+
+public interface JobRepository extends JpaRepository<Job, UUID> {
     // Additional custom methods if needed
 }
@@ -3,6 +3,10 @@ package com.file.manager.repositories;
 import com.file.manager.models.Metadata;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface MetadataRepository extends JpaRepository<Metadata, Long> {
-    // Additional custom methods if needed
+import java.util.Optional;
+import java.util.UUID;
+
+public interface MetadataRepository extends JpaRepository<Metadata, UUID> {
+
+    Optional<Metadata> findByFileId(UUID fileId);
 }
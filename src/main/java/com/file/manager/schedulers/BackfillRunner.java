@@ -0,0 +1,53 @@
+package com.file.manager.schedulers;
+
+import com.file.manager.dto.BackfillFilter;
+import com.file.manager.services.BackfillService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Command-line entry point, e.g.
+ * {@code --backfill.run=start --backfill.mime-types=image/*,application/pdf --backfill.created-from=2025-01-01T00:00}
+ * or {@code --backfill.run=resume --backfill.run-id=<uuid>}. The run continues in the
+ * background alongside live traffic.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "backfill.run")
+public class BackfillRunner implements CommandLineRunner {
+
+    @Autowired
+    private BackfillService backfillService;
+    @Autowired
+    private Environment environment;
+
+    @Override
+    public void run(String... args) {
+        String mode = environment.getProperty("backfill.run", "");
+        switch (mode) {
+            case "start" -> backfillService.start(BackfillFilter.builder()
+                    .mimeTypes(environment.getProperty("backfill.mime-types", List.class))
+                    .ownerId(environment.getProperty("backfill.owner-id", UUID.class))
+                    .folderId(environment.getProperty("backfill.folder-id", UUID.class))
+                    .createdFrom(dateTime("backfill.created-from"))
+                    .createdTo(dateTime("backfill.created-to"))
+                    .build());
+            case "resume" -> backfillService.resume(environment.getRequiredProperty("backfill.run-id", UUID.class));
+            default -> throw new IllegalArgumentException("backfill.run must be 'start' or 'resume', got '" + mode + "'");
+        }
+    }
+
+    // ISO-8601, e.g. 2025-01-01T00:00
+    private LocalDateTime dateTime(String property) {
+        String value = environment.getProperty(property);
+        return value == null || value.isBlank() ? null : LocalDateTime.parse(value);
+    }
+}
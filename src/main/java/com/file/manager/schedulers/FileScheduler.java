@@ -2,28 +2,57 @@ package com.file.manager.schedulers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.file.manager.dto.FileDto;
-import com.file.manager.enums.FileType;
+import com.file.manager.enums.JobQueueMode;
 import com.file.manager.enums.JobStatus;
-import com.file.manager.models.Job;
-import com.file.manager.repositories.JobRepository;
-import com.file.manager.services.ImageFileService;
-import com.file.manager.services.TextPdfFileService;
+import com.file.manager.metrics.PipelineMetrics;
+import com.file.manager.services.DeadLetterService;
+import com.file.manager.services.FailureClassifier;
+import com.file.manager.services.FileHandlerRegistry;
+import com.file.manager.services.FileProcessingException;
+import com.file.manager.services.FileProcessor;
+import com.file.manager.services.JobQueueService;
+import com.file.manager.services.OwnerFairScheduler;
+import com.file.manager.services.RetryPolicy;
+import com.file.manager.services.SqsMessageAcknowledger;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
 import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Receives file events from SQS and hands them to the handlers. Started and stopped as a
+ * {@link SmartLifecycle}: on shutdown it stops receiving, returns everything not yet started
+ * to the queue at once, and gives started files until {@code shutdown.drain-timeout-seconds}.
+ */
 @Slf4j
 @Component
-public class FileScheduler {
+public class FileScheduler implements SmartLifecycle {
+
+    private static final int MAX_BATCH = 10; // SQS receive limit
 
     @Autowired
     private SqsClient sqsClient;
@@ -32,93 +61,395 @@ public class FileScheduler {
     private ObjectMapper objectMapper;
 
     @Autowired
-    private ImageFileService imageFileService;
-   @Autowired
-    private TextPdfFileService textPdfFileService;
+    private FileProcessor fileProcessor;
+
+    @Autowired
+    private JobQueueService jobQueueService;
+
+    @Autowired
+    private SqsMessageAcknowledger acknowledger;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
 
-    // Replace with your SQS queue URL
+    @Autowired
+    private FileHandlerRegistry handlerRegistry;
 
     @Autowired
-    private JobRepository jobRepository;
+    private OwnerFairScheduler fairScheduler;
+
+    @Autowired
+    private FailureClassifier failureClassifier;
+
+    @Autowired
+    private RetryPolicy retryPolicy;
+
+    @Autowired
+    private DeadLetterService deadLetterService;
 
     @Value("${aws.sqs.queue-url}")
     private String queueUrl;
 
-    // This method will run every 20 seconds
-    @Scheduled(fixedDelay = 20000)
-    public void pollQueue() {
+    @Value("${jobs.mode:DIRECT}")
+    private JobQueueMode jobQueueMode;
+
+    @Value("${aws.sqs.wait-time-seconds:20}")
+    private int waitTimeSeconds;
+
+    @Value("${aws.sqs.min-pollers:1}")
+    private int minPollers;
+
+    @Value("${aws.sqs.max-pollers:4}")
+    private int maxPollers;
+
+    // Backlog one poller is expected to keep up with before another one is started
+    @Value("${aws.sqs.messages-per-poller:50}")
+    private int messagesPerPoller;
+
+    // Keep below spring.lifecycle.timeout-per-shutdown-phase
+    @Value("${shutdown.drain-timeout-seconds:25}")
+    private int drainTimeoutSeconds;
+
+    private final List<Poller> pollers = new ArrayList<>();
+    private final AtomicLong queueVisible = new AtomicLong();
+    private final AtomicLong queueNotVisible = new AtomicLong();
+    private ExecutorService pollerThreads;
+
+    // One permit per worker slot (threads + queue) over all handlers plus the fair scheduler's lookahead,
+    // so pollers only receive what can be handled
+    private Semaphore capacity;
+    private int totalPermits;
+
+    private volatile boolean running;
+    private volatile boolean draining;
+    // Received but never started once draining began; released in batches
+    private final Queue<Message> unstarted = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void start() {
+        totalPermits = handlerRegistry.totalCapacity() + fairScheduler.lookahead();
+        capacity = new Semaphore(totalPermits);
+        pollerThreads = Executors.newCachedThreadPool(new CustomizableThreadFactory("sqs-poller-"));
+        resizePollers(minPollers);
+
+        pipelineMetrics.gauge("sqs.queue.messages", queueVisible, AtomicLong::get, "state", "visible");
+        pipelineMetrics.gauge("sqs.queue.messages", queueNotVisible, AtomicLong::get, "state", "in_flight");
+        pipelineMetrics.gauge("sqs.pollers", pollers, List::size);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        drain();
+    }
+
+    // Drains on its own thread so the JobClaimer can drain alongside
+    @Override
+    public void stop(Runnable callback) {
+        Thread drainer = new Thread(() -> {
+            try {
+                drain();
+            } finally {
+                callback.run();
+            }
+        }, "sqs-drain");
+        drainer.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        draining = true;
+        synchronized (pollers) {
+            pollers.forEach(Poller::stop);
+            pollers.clear();
+        }
+        pollerThreads.shutdown();
+
+        int returned = returnUnstarted();
+        int abandoned = 0;
         try {
-            ReceiveMessageRequest request = ReceiveMessageRequest.builder()
-                    .queueUrl(queueUrl)
-                    .maxNumberOfMessages(10)
-                    .build();
+            // A poller in a long poll comes back within the wait time; what it received is returned straight away
+            pollerThreads.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            returned += returnUnstarted();
 
-            List<Message> messages = sqsClient.receiveMessage(request).messages();
+            // Every permit back means no file is being processed
+            while (capacity.availablePermits() < totalPermits && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pollerThreads.shutdownNow();
+            returned += returnUnstarted();
+            acknowledger.flushDeletes();
+            jobQueueService.flushTransitions();
+            // Past the deadline: better another consumer starts over now than after the visibility timeout
+            abandoned = acknowledger.releaseInFlight();
+            running = false;
+        }
+        log.info("SQS consumer drained: {} unstarted messages returned, {} still processing at the deadline",
+                returned, abandoned);
+    }
+
+    // Files that never started run here, where the draining check turns them into returns; then one batched release
+    private int returnUnstarted() {
+        if (jobQueueMode == JobQueueMode.DIRECT) {
+            fairScheduler.drainPending().forEach(Runnable::run);
+            handlerRegistry.drainQueued().forEach(Runnable::run);
+        }
+        List<Message> messages = new ArrayList<>();
+        for (Message message; (message = unstarted.poll()) != null; ) {
+            messages.add(message);
+        }
+        acknowledger.release(messages);
+        return messages.size();
+    }
+
+    // Scale the number of long-polling loops with the visible backlog
+    @Scheduled(fixedDelayString = "${aws.sqs.scale-interval-ms:15000}")
+    public void scalePollers() {
+        try {
+            Map<QueueAttributeName, String> attributes = sqsClient.getQueueAttributes(GetQueueAttributesRequest.builder()
+                            .queueUrl(queueUrl)
+                            .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES,
+                                    QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE)
+                            .build())
+                    .attributes();
+            String backlog = attributes.get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES);
+            String notVisible = attributes.get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE);
+
+            int visible = backlog == null ? 0 : Integer.parseInt(backlog);
+            queueVisible.set(visible);
+            queueNotVisible.set(notVisible == null ? 0 : Long.parseLong(notVisible));
+
+            int desired = (int) Math.ceil((double) visible / Math.max(1, messagesPerPoller));
+            desired = Math.max(minPollers, Math.min(maxPollers, desired));
+
+            resizePollers(desired);
+        } catch (Exception e) {
+            log.error("Failed to read SQS queue depth", e);
+        }
+    }
+
+    private void resizePollers(int desired) {
+        synchronized (pollers) {
+            if (draining || desired == pollers.size()) return;
+
+            log.info("Scaling SQS pollers from {} to {}", pollers.size(), desired);
+            while (pollers.size() < desired) {
+                Poller poller = new Poller();
+                pollers.add(poller);
+                pollerThreads.execute(poller);
+            }
+            while (pollers.size() > desired) {
+                pollers.remove(pollers.size() - 1).stop();
+            }
+        }
+    }
+
+    private void pollOnce() throws InterruptedException {
+        if (jobQueueMode == JobQueueMode.QUEUE) {
+            pollIntoJobQueue();
+            return;
+        }
 
-            for (Message message : messages) {
+        // Wait for at least one free worker slot (rechecking for shutdown), then take whatever else is free up to a full batch
+        if (!capacity.tryAcquire(1, TimeUnit.SECONDS)) return;
+        int permits = 1;
+        while (permits < MAX_BATCH && capacity.tryAcquire()) {
+            permits++;
+        }
+
+        List<Message> messages;
+        try {
+            messages = receive(permits);
+        } catch (RuntimeException e) {
+            capacity.release(permits);
+            throw e;
+        }
+
+        capacity.release(permits - messages.size());
+
+        if (draining) {
+            capacity.release(messages.size());
+            acknowledger.release(messages);
+            return;
+        }
+
+        Map<Message, FileDto> files = parse(messages);
+        capacity.release(messages.size() - files.size());
+
+        try {
+            jobQueueService.track(byMessageId(files));
+        } catch (Exception e) {
+            log.error("Failed to record jobs for {} messages", files.size(), e);
+        }
+
+        files.keySet().forEach(acknowledger::track);
+
+        files.forEach((message, file) -> dispatch(message, file));
+    }
+
+    private void dispatch(Message message, FileDto file) {
+        try {
+            fairScheduler.submit(file, () -> {
                 try {
-                    // Deserialize JSON to File object
-                    FileDto file = objectMapper.readValue(message.body(), FileDto.class);
-                    log.info("Received file event: {}", file);
-
-//                    Job job = Job.builder()
-//                            .id(UUID.randomUUID())
-//                            .jobStatus(JobStatus.PENDING)
-//                            .fileType(getFileType(file.getMimeType()))
-//                            .fileId(file.getId())
-//                            .createdAt(LocalDateTime.now())
-//                            .updatedAt(LocalDateTime.now())
-//                            .build();
-//
-//                    jobRepository.save(job);
-
-
-                    if(file.getMimeType()!=null && file.getMimeType().startsWith("image/")){
-//                        job.setJobStatus(JobStatus.IN_PROGRESS);
-//                        job.setUpdatedAt(LocalDateTime.now());
-//                        jobRepository.save(job);
-                        JobStatus status = imageFileService.handleImageFile(file);
-//                        job.setJobStatus(status);
-//                        job.setUpdatedAt(LocalDateTime.now());
-//                        jobRepository.save(job);
-                    }else if(file.getMimeType() != null &&
-                            (file.getMimeType().startsWith("application/pdf") || file.getMimeType().equals("text/plain"))) {
-//                        job.setJobStatus(JobStatus.IN_PROGRESS);
-//                        job.setUpdatedAt(LocalDateTime.now());
-//                        jobRepository.save(job);
-                        JobStatus status = textPdfFileService.handleTextFile(file);
-//                        job.setJobStatus(status);
-//                        job.setUpdatedAt(LocalDateTime.now());
-//                        jobRepository.save(job);
+                    if (draining) {
+                        unstarted.add(message);
+                        return;
                     }
+                    processMessage(message, file);
+                } finally {
+                    capacity.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // That handler's bulkhead is full; leave the message to reappear once its visibility timeout runs out
+            log.warn("No room to process file {} with type:{}, leaving message for redelivery",
+                    file.getId(), file.getMimeType());
+            capacity.release();
+            acknowledger.forget(message);
+        }
+    }
 
+    // QUEUE mode: persist as PENDING jobs and drop the messages; JobClaimer does the processing
+    private void pollIntoJobQueue() {
+        List<Message> messages = receive(MAX_BATCH);
+        Map<Message, FileDto> files = parse(messages);
+        if (files.isEmpty()) return;
 
-                    // Delete message after processing
-                    sqsClient.deleteMessage(d -> d.queueUrl(queueUrl)
-                            .receiptHandle(message.receiptHandle()));
-                } catch (Exception e) {
-                    log.error("Failed to process message: {}", message.body(), e);
+        jobQueueService.enqueue(byMessageId(files));
+        log.info("Queued {} file events as jobs", files.size());
+
+        files.keySet().forEach(acknowledger::ack);
+    }
+
+    private List<Message> receive(int maxMessages) {
+        ReceiveMessageRequest request = ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .maxNumberOfMessages(maxMessages)
+                .waitTimeSeconds(waitTimeSeconds)
+                .visibilityTimeout(acknowledger.getVisibilityTimeoutSeconds())
+                .messageSystemAttributeNames(MessageSystemAttributeName.SENT_TIMESTAMP,
+                        MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT)
+                .build();
+
+        List<Message> messages = pipelineMetrics.time(PipelineMetrics.SQS_RECEIVE,
+                () -> sqsClient.receiveMessage(request).messages());
+
+        for (Message message : messages) {
+            String sent = message.attributes().get(MessageSystemAttributeName.SENT_TIMESTAMP);
+            if (sent != null) {
+                pipelineMetrics.recordQueueLag(Duration.ofMillis(System.currentTimeMillis() - Long.parseLong(sent)));
+            }
+        }
+        return messages;
+    }
+
+    private Map<Message, FileDto> parse(List<Message> messages) {
+        Map<Message, FileDto> files = new LinkedHashMap<>();
+        for (Message message : messages) {
+            try {
+                // Deserialize JSON to File object
+                FileDto file = objectMapper.readValue(message.body(), FileDto.class);
+                log.info("Received file event: {}", file);
+                files.put(message, file);
+            } catch (Exception e) {
+                // Redelivering it cannot help: set it aside and delete it
+                log.error("Failed to parse message: {}", message.body(), e);
+                try {
+                    deadLetterService.recordUnreadable(JobQueueService.jobIdForMessage(message.messageId()), message.body(), e);
+                    acknowledger.ack(message);
+                } catch (Exception deadLetterError) {
+                    log.error("Failed to dead-letter message {}", message.messageId(), deadLetterError);
                 }
             }
-        } catch (Exception e) {
-            log.error("Error polling SQS queue", e);
         }
+        return files;
+    }
+
+    private Map<String, FileDto> byMessageId(Map<Message, FileDto> files) {
+        Map<String, FileDto> byId = new LinkedHashMap<>();
+        files.forEach((message, file) -> byId.put(message.messageId(), file));
+        return byId;
+    }
+
+    private void processMessage(Message message, FileDto file) {
+        UUID jobId = JobQueueService.jobIdForMessage(message.messageId());
+        try {
+            JobStatus status = fileProcessor.process(file);
+            jobQueueService.complete(jobId, status);
 
+            // Delete message after processing (batched)
+            acknowledger.ack(message);
+        } catch (Exception e) {
+            handleFailure(message, file, jobId, failureClassifier.classify(e));
+        }
+    }
 
+    // Retryable and under the attempt limit: back after a backoff. Otherwise dead-lettered and deleted.
+    private void handleFailure(Message message, FileDto file, UUID jobId, FileProcessingException failure) {
+        int attempt = receiveCount(message);
+        if (retryPolicy.shouldRetry(failure, attempt)) {
+            int delaySeconds = retryPolicy.backoffSeconds(attempt);
+            log.warn("File {} failed on attempt {} ({}), retrying in {}s", file.getId(), attempt, failure.getReason(), delaySeconds);
+            acknowledger.retryLater(message, delaySeconds);
+            return;
+        }
 
+        try {
+            deadLetterService.record(jobId, file, failure, attempt);
+            jobQueueService.complete(jobId, JobStatus.FAILED);
+            acknowledger.ack(message);
+        } catch (Exception e) {
+            log.error("Failed to dead-letter file {}, leaving message for redelivery", file.getId(), e);
+            acknowledger.forget(message);
+        }
+    }
 
+    private static int receiveCount(Message message) {
+        String count = message.attributes().get(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT);
+        try {
+            return count == null ? 1 : Integer.parseInt(count);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
     }
 
-    private FileType getFileType(String mimeType){
-        if(mimeType.equalsIgnoreCase("application/pdf")){
-            return FileType.PDF;
+    private class Poller implements Runnable {
+
+        private volatile boolean running = true;
+
+        @Override
+        public void run() {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                try {
+                    pollOnce();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("Error polling SQS queue", e);
+                    sleepQuietly(1000);
+                }
+            }
+        }
+
+        // Lets the current long poll finish so already-received messages are still dispatched
+        void stop() {
+            running = false;
+        }
 
-        }else if(mimeType.equalsIgnoreCase("text/plain")){
-            return FileType.TXT;
-        }else if(mimeType.startsWith("image/")){
-            return FileType.IMAGE;
-        }else{
-            return FileType.OTHER;
+        private void sleepQuietly(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -0,0 +1,293 @@
+package com.file.manager.schedulers;
+
+import com.file.manager.dto.FileDto;
+import com.file.manager.enums.JobStatus;
+import com.file.manager.metrics.PipelineMetrics;
+import com.file.manager.models.Job;
+import com.file.manager.services.DeadLetterService;
+import com.file.manager.services.FailureClassifier;
+import com.file.manager.services.FileHandlerRegistry;
+import com.file.manager.services.FileProcessingException;
+import com.file.manager.services.FileProcessor;
+import com.file.manager.services.JobQueueService;
+import com.file.manager.services.OwnerFairScheduler;
+import com.file.manager.services.RetryPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// QUEUE mode only: pulls PENDING (or lease-expired) jobs from details.job and runs them on the handlers' pools.
+// On shutdown, unstarted jobs are released at once and started ones get until shutdown.drain-timeout-seconds.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jobs.mode", havingValue = "QUEUE")
+public class JobClaimer implements SmartLifecycle {
+
+    @Autowired
+    private JobQueueService jobQueueService;
+
+    @Autowired
+    private FileProcessor fileProcessor;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private FileHandlerRegistry handlerRegistry;
+
+    @Autowired
+    private OwnerFairScheduler fairScheduler;
+
+    @Autowired
+    private FailureClassifier failureClassifier;
+
+    @Autowired
+    private RetryPolicy retryPolicy;
+
+    @Autowired
+    private DeadLetterService deadLetterService;
+
+    @Value("${jobs.claim-batch-size:10}")
+    private int claimBatchSize;
+
+    // Jobs leased beyond the worker slots, for the fair scheduler to choose from. Kept small: every claimed job is
+    // leased to this node, so a large backlog starves the other nodes.
+    @Value("${jobs.claim-backlog:32}")
+    private int claimBacklog;
+
+    @Value("${jobs.idle-poll-ms:1000}")
+    private long idlePollMs;
+
+    // How long a job its handler had no room for waits before it can be claimed again
+    @Value("${jobs.rejected-retry-seconds:5}")
+    private int rejectedRetrySeconds;
+
+    @Value("${shutdown.drain-timeout-seconds:25}")
+    private int drainTimeoutSeconds;
+
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private Semaphore capacity;
+    private Thread claimer;
+    private volatile boolean running;
+    private volatile boolean draining;
+    // Claimed but never started once draining began; released in one batch
+    private final Queue<UUID> unstarted = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void start() {
+        capacity = new Semaphore(handlerRegistry.totalCapacity() + claimBacklog);
+        running = true;
+        claimer = new Thread(this::claimLoop, "job-claimer");
+        claimer.setDaemon(true);
+        claimer.start();
+
+        pipelineMetrics.gauge("jobs.in.flight", inFlight, Set::size);
+        log.info("Claiming jobs from details.job as {}", jobQueueService.nodeId());
+    }
+
+    @Override
+    public void stop() {
+        drain();
+    }
+
+    // Drains on its own thread so the FileScheduler can drain alongside
+    @Override
+    public void stop(Runnable callback) {
+        Thread drainer = new Thread(() -> {
+            try {
+                drain();
+            } finally {
+                callback.run();
+            }
+        }, "job-drain");
+        drainer.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        draining = true;
+        running = false;
+        claimer.interrupt();
+
+        int returned = returnUnstarted();
+        int abandoned = 0;
+        try {
+            claimer.join(TimeUnit.NANOSECONDS.toMillis(Math.max(0, deadline - System.nanoTime())) + 1);
+            returned += returnUnstarted();
+
+            while (!inFlight.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            returned += returnUnstarted();
+            jobQueueService.flushTransitions();
+            // Past the deadline: let another node claim them now rather than when the lease runs out
+            Set<UUID> stillRunning = Set.copyOf(inFlight);
+            jobQueueService.release(stillRunning, 0);
+            abandoned = stillRunning.size();
+        }
+        log.info("Job claimer drained: {} unstarted jobs released, {} still running at the deadline", returned, abandoned);
+    }
+
+    // Jobs that never started run here, where the draining check turns them into releases; then one batched update
+    private int returnUnstarted() {
+        fairScheduler.drainPending().forEach(Runnable::run);
+        handlerRegistry.drainQueued().forEach(Runnable::run);
+
+        List<UUID> jobIds = new ArrayList<>();
+        for (UUID jobId; (jobId = unstarted.poll()) != null; ) {
+            jobIds.add(jobId);
+        }
+        jobQueueService.release(jobIds, 0);
+        return jobIds.size();
+    }
+
+    // Keep leases alive while jobs run, so long files are not reclaimed by another node
+    @Scheduled(fixedDelayString = "${jobs.lease-renew-interval-ms:60000}")
+    public void renewLeases() {
+        try {
+            jobQueueService.renewLeases(Set.copyOf(inFlight));
+        } catch (Exception e) {
+            log.error("Failed to renew {} job leases", inFlight.size(), e);
+        }
+    }
+
+    private void claimLoop() {
+        while (running) {
+            try {
+                capacity.acquire();
+                int permits = 1;
+                while (permits < claimBatchSize && capacity.tryAcquire()) {
+                    permits++;
+                }
+
+                List<Job> jobs;
+                try {
+                    jobs = jobQueueService.claim(permits);
+                } catch (RuntimeException e) {
+                    capacity.release(permits);
+                    throw e;
+                }
+                capacity.release(permits - jobs.size());
+
+                jobs.forEach(this::dispatch);
+
+                if (jobs.isEmpty()) {
+                    Thread.sleep(idlePollMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Error claiming jobs", e);
+                sleepQuietly(idlePollMs);
+            }
+        }
+    }
+
+    private void dispatch(Job job) {
+        FileDto file;
+        try {
+            file = jobQueueService.readPayload(job);
+        } catch (Exception e) {
+            log.error("Unreadable payload for job {}", job.getId(), e);
+            try {
+                deadLetterService.recordUnreadable(job.getId(), job.getPayload(), e);
+                jobQueueService.complete(job.getId(), JobStatus.FAILED);
+            } catch (Exception deadLetterError) {
+                // Left leased: claimed again when the lease runs out, or swept into dead_letter once attempts are spent
+                log.error("Failed to dead-letter job {}, leaving it leased", job.getId(), deadLetterError);
+            }
+            capacity.release();
+            return;
+        }
+
+        inFlight.add(job.getId());
+        try {
+            fairScheduler.submit(file, () -> {
+                try {
+                    if (draining) {
+                        unstarted.add(job.getId());
+                        return;
+                    }
+                    runJob(job, file);
+                } finally {
+                    inFlight.remove(job.getId());
+                    capacity.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // That handler's bulkhead is full; hand the job back without charging it an attempt
+            log.warn("No room to process job {} with type:{}, releasing it", job.getId(), file.getMimeType());
+            inFlight.remove(job.getId());
+            capacity.release();
+            jobQueueService.release(job.getId(), rejectedRetrySeconds);
+        }
+    }
+
+    private void runJob(Job job, FileDto file) {
+        try {
+            log.info("Processing job {} (attempt {}) for file {}", job.getId(), job.getAttempts(), file.getId());
+            JobStatus status = fileProcessor.process(file);
+            jobQueueService.complete(job.getId(), status);
+        } catch (Exception e) {
+            handleFailure(job, file, failureClassifier.classify(e));
+        }
+    }
+
+    // Retryable and under the attempt limit: claimable again after a backoff. Otherwise dead-lettered and FAILED.
+    private void handleFailure(Job job, FileDto file, FileProcessingException failure) {
+        int attempt = job.getAttempts() == null ? 1 : job.getAttempts();
+        if (retryPolicy.shouldRetry(failure, attempt)) {
+            int delaySeconds = retryPolicy.backoffSeconds(attempt);
+            log.warn("Job {} failed on attempt {} ({}), retrying in {}s", job.getId(), attempt, failure.getReason(), delaySeconds);
+            try {
+                jobQueueService.retry(job.getId(), delaySeconds);
+            } catch (Exception e) {
+                // The lease still runs out, just later than the backoff
+                log.error("Failed to schedule retry of job {}", job.getId(), e);
+            }
+            return;
+        }
+
+        try {
+            deadLetterService.record(job.getId(), file, failure, attempt);
+        } catch (Exception e) {
+            // Left leased, like an unacked message in DIRECT mode: it comes back when the lease runs out, or is
+            // swept into dead_letter by failExhausted once its attempts are spent
+            log.error("Failed to dead-letter job {}, leaving it leased", job.getId(), e);
+            return;
+        }
+        jobQueueService.complete(job.getId(), JobStatus.FAILED);
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
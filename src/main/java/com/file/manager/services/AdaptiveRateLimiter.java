@@ -0,0 +1,230 @@
+package com.file.manager.services;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Shared gate in front of an AWS AI service. Calls need a token from a token bucket (request rate)
+ * and a slot under an AIMD concurrency limit: the limit grows by roughly one per window of successful
+ * calls and is cut multiplicatively on a throttle, at most once per window: throttles of calls started
+ * before the last cut were caused by the old limit and are not counted again. Throttled and transient
+ * failures are retried with full-jitter exponential backoff. Cancelling the returned future cancels
+ * the SDK call in flight and drops any queued or scheduled attempt.
+ */
+@Slf4j
+public class AdaptiveRateLimiter {
+
+    private final String name;
+    private final double ratePerSecond;
+    private final double burst;
+    private final double minLimit;
+    private final double maxLimit;
+    private final double decreaseFactor;
+    private final int maxRetries;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final ScheduledExecutorService scheduler;
+
+    // guarded by this
+    private double tokens;
+    private long lastRefillNanos;
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    private boolean dispatchScheduled;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+
+    public AdaptiveRateLimiter(String name, double ratePerSecond, double burst,
+                               int initialLimit, int minLimit, int maxLimit, double decreaseFactor,
+                               int maxRetries, long baseBackoffMs, long maxBackoffMs,
+                               ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.decreaseFactor = decreaseFactor;
+        this.maxRetries = maxRetries;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.scheduler = scheduler;
+
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+        this.lastDecreaseNanos = this.lastRefillNanos;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(call, result, 0);
+        return result;
+    }
+
+    public synchronized int getConcurrencyLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    public static boolean isThrottle(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof AwsServiceException ase) {
+            String code = ase.awsErrorDetails() == null ? null : ase.awsErrorDetails().errorCode();
+            return ase.isThrottlingException()
+                    || "ThrottlingException".equals(code)
+                    || "ProvisionedThroughputExceededException".equals(code);
+        }
+        return false;
+    }
+
+    private static boolean isTransient(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof AwsServiceException ase) {
+            return ase.statusCode() >= 500;
+        }
+        return cause instanceof SdkClientException;
+    }
+
+    private <T> void attempt(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result, int attempt) {
+        if (result.isDone()) return;
+        enqueue(() -> {
+            // Cancelled while waiting for a slot
+            if (result.isDone()) {
+                releaseUnused();
+                return;
+            }
+            long dispatchedAt = System.nanoTime();
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (Throwable t) {
+                future = CompletableFuture.failedFuture(t);
+            }
+
+            // The SDK aborts the request when its future is cancelled
+            CompletableFuture<T> inFlightCall = future;
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) inFlightCall.cancel(true);
+            });
+
+            future.whenComplete((value, error) -> {
+                // A cancelled call says nothing about the service's capacity
+                if (result.isCancelled()) {
+                    releaseUnused();
+                    return;
+                }
+                boolean throttled = error != null && isThrottle(error);
+                release(throttled, dispatchedAt);
+
+                if (error == null) {
+                    result.complete(value);
+                } else if ((throttled || isTransient(error)) && attempt < maxRetries) {
+                    long delay = backoffMillis(attempt);
+                    log.debug("{} call {} (attempt {}), retrying in {} ms",
+                            name, throttled ? "throttled" : "failed", attempt + 1, delay);
+                    scheduler.schedule(() -> attempt(call, result, attempt + 1), delay, TimeUnit.MILLISECONDS);
+                } else {
+                    result.completeExceptionally(unwrap(error));
+                }
+            });
+        });
+    }
+
+    private void enqueue(Runnable task) {
+        synchronized (this) {
+            waiting.addLast(task);
+        }
+        dispatch();
+    }
+
+    private void release(boolean throttled, long dispatchedAt) {
+        synchronized (this) {
+            inFlight--;
+            if (throttled) {
+                // A burst of throttles from one window only cuts the limit once
+                if (dispatchedAt - lastDecreaseNanos >= 0) {
+                    double previous = limit;
+                    limit = Math.max(minLimit, limit * decreaseFactor);
+                    lastDecreaseNanos = System.nanoTime();
+                    log.info("{} throttled, concurrency limit {} -> {}", name, (int) previous, (int) limit);
+                }
+            } else {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+        dispatch();
+    }
+
+    private void releaseUnused() {
+        synchronized (this) {
+            inFlight--;
+        }
+        dispatch();
+    }
+
+    // Starts as many waiting calls as the limit and the bucket allow; the calls run outside the lock
+    private void dispatch() {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            refill();
+            while (!waiting.isEmpty() && inFlight < (int) limit) {
+                if (tokens < 1) {
+                    scheduleDispatch((long) Math.ceil((1 - tokens) / ratePerSecond * 1_000_000_000L));
+                    break;
+                }
+                tokens -= 1;
+                inFlight++;
+                ready.add(waiting.pollFirst());
+            }
+        }
+        ready.forEach(Runnable::run);
+    }
+
+    private void scheduleDispatch(long delayNanos) {
+        if (dispatchScheduled) return;
+        dispatchScheduled = true;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                dispatchScheduled = false;
+            }
+            dispatch();
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * ratePerSecond);
+        lastRefillNanos = now;
+    }
+
+    private long backoffMillis(int attempt) {
+        long cap = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,162 @@
+package com.file.manager.services;
+
+import com.file.manager.metrics.PipelineMetrics;
+import com.file.manager.models.AnalysisCacheEntry;
+import com.file.manager.models.Metadata;
+import com.file.manager.repositories.AnalysisCacheRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of AI results keyed by object content (S3 ETag), model id and
+ * analysis version, so re-uploads of the same bytes skip Rekognition and Bedrock.
+ */
+@Slf4j
+@Service
+public class AnalysisCacheService {
+
+    @Value("${aws.s3.bucket-name}")
+    private String bucketName;
+    // Bump after a prompt change so a backfill re-analyzes instead of replaying cached results
+    @Value("${cache.analysis.version:1}")
+    private String analysisVersion;
+
+    @Autowired
+    private S3Client s3Client;
+    @Autowired
+    private AnalysisCacheRepository analysisCacheRepository;
+    @Autowired
+    private ModelRouter modelRouter;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    private final Cache<String, AnalysisCacheEntry> localCache;
+
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public AnalysisCacheService(@Value("${cache.analysis.max-entries:10000}") long maxEntries) {
+        // Caffeine's W-TinyLFU eviction keeps frequently re-uploaded content resident
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    // Returns null when the object cannot be resolved; callers then simply skip the cache
+    public String cacheKey(String pipeline, String s3Key) {
+        try {
+            String eTag = s3Client.headObject(b -> b.bucket(bucketName).key(s3Key)).eTag();
+            if (eTag == null || eTag.isBlank()) return null;
+            return scope(pipeline) + ":" + eTag.replace("\"", "");
+        } catch (Exception e) {
+            log.warn("Could not resolve ETag for {}, skipping analysis cache", s3Key, e);
+            return null;
+        }
+    }
+
+    // Results are only interchangeable within the same pipeline, model routing and analysis version
+    public String scope(String pipeline) {
+        return pipeline + ":" + modelRouter.fingerprint() + ":v" + analysisVersion;
+    }
+
+    public Optional<Metadata> lookup(String cacheKey, UUID fileId) {
+        if (cacheKey == null) return Optional.empty();
+
+        AnalysisCacheEntry entry = localCache.getIfPresent(cacheKey);
+        if (entry != null) {
+            localHits.incrementAndGet();
+        } else {
+            entry = analysisCacheRepository.findById(cacheKey).orElse(null);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            databaseHits.incrementAndGet();
+            localCache.put(cacheKey, entry);
+        }
+
+        log.info("Analysis cache hit for file {} ({})", fileId, cacheKey);
+        return Optional.of(toMetadata(entry, fileId));
+    }
+
+    public void store(String cacheKey, Metadata metadata) {
+        // Never cache a failed or degraded analysis; the next upload of the same bytes should try again
+        if (cacheKey == null || metadata.getSummary() == null || metadata.isDegraded()) return;
+
+        AnalysisCacheEntry entry = AnalysisCacheEntry.builder()
+                .cacheKey(cacheKey)
+                .aiTag(metadata.getAiTag() == null ? List.of() : new ArrayList<>(metadata.getAiTag()))
+                .summary(metadata.getSummary())
+                .embedding(metadata.getEmbedding())
+                .sensitiveFlag(metadata.getSensitiveFlag())
+                .confidentialFlag(metadata.getConfidentialFlag())
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        try {
+            analysisCacheRepository.save(entry);
+            localCache.put(cacheKey, entry);
+        } catch (Exception e) {
+            log.warn("Failed to store analysis cache entry {}", cacheKey, e);
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        pipelineMetrics.functionCounter("analysis.cache.requests", localHits, AtomicLong::get, "result", "hit", "tier", "local");
+        pipelineMetrics.functionCounter("analysis.cache.requests", databaseHits, AtomicLong::get, "result", "hit", "tier", "database");
+        pipelineMetrics.functionCounter("analysis.cache.requests", misses, AtomicLong::get, "result", "miss", "tier", "none");
+        pipelineMetrics.gauge("analysis.cache.size", localCache, Cache::estimatedSize);
+    }
+
+    @Scheduled(fixedDelayString = "${cache.analysis.stats-interval-ms:300000}")
+    public void logStats() {
+        log.info("Analysis cache: {} local hits, {} database hits, {} misses, {} entries resident",
+                localHits.get(), databaseHits.get(), misses.get(), localCache.estimatedSize());
+    }
+
+    public long getHitCount() {
+        return localHits.get() + databaseHits.get();
+    }
+
+    public long getLocalHitCount() {
+        return localHits.get();
+    }
+
+    public long getDatabaseHitCount() {
+        return databaseHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private Metadata toMetadata(AnalysisCacheEntry entry, UUID fileId) {
+        return Metadata.builder()
+                .id(UUID.randomUUID())
+                .fileId(fileId)
+                .aiTag(entry.getAiTag() == null ? List.of() : new ArrayList<>(entry.getAiTag()))
+                .summary(entry.getSummary())
+                .embedding(entry.getEmbedding())
+                .sensitiveFlag(entry.getSensitiveFlag())
+                .confidentialFlag(entry.getConfidentialFlag())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
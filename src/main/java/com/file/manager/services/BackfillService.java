@@ -0,0 +1,420 @@
+package com.file.manager.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.manager.dto.BackfillFilter;
+import com.file.manager.dto.FileDto;
+import com.file.manager.enums.BackfillStatus;
+import com.file.manager.enums.JobStatus;
+import com.file.manager.metrics.PipelineMetrics;
+import com.file.manager.models.BackfillRun;
+import com.file.manager.repositories.BackfillRunRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-analyzes existing files from filesystem.file, e.g. after a model or prompt change.
+ * A run walks the table in (created_at, id) order with keyset pagination, processes each
+ * page on its own worker pool, and checkpoints the cursor after every page, so a crashed
+ * run resumes where it stopped. It is paced by its own files-per-second budget and
+ * holds back whenever live traffic is queueing on the AI rate limiters.
+ */
+@Slf4j
+@Service
+public class BackfillService {
+
+    private static final String SELECT_FILES = """
+            SELECT id, name, file_url, mime_type, file_size, owner_id, folder_id, folder_path, s3_key, created_at, updated_at
+            FROM filesystem.file
+            WHERE 1 = 1
+            """;
+
+    // Takes over a RUNNING run whose owner stopped checkpointing
+    private static final String CLAIM_STALE_RUN = """
+            UPDATE filesystem.backfill_run SET owner = ?, updated_at = now()
+            WHERE id = ? AND status = 'RUNNING' AND updated_at < now() - ? * interval '1 second'
+            """;
+
+    // At startup a RUNNING run recorded under this node id was cut off by the restart; no need to wait until it is stale
+    private static final String CLAIM_OWN_RUN = """
+            UPDATE filesystem.backfill_run SET updated_at = now()
+            WHERE id = ? AND status = 'RUNNING' AND owner = ?
+            """;
+
+    // Checkpoint, heartbeat and finish only apply while this node still owns the run; 0 rows means it was taken over
+    private static final String CHECKPOINT = """
+            UPDATE filesystem.backfill_run SET
+                cursor_created_at = ?, cursor_file_id = ?, processed = ?, failed = ?, updated_at = now()
+            WHERE id = ? AND owner = ? AND status = 'RUNNING'
+            """;
+
+    private static final String HEARTBEAT = """
+            UPDATE filesystem.backfill_run SET updated_at = now()
+            WHERE id = ? AND owner = ? AND status = 'RUNNING'
+            """;
+
+    private static final String FINISH = """
+            UPDATE filesystem.backfill_run SET
+                status = ?, processed = ?, failed = ?, updated_at = now(), finished_at = now()
+            WHERE id = ? AND owner = ? AND status = 'RUNNING'
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private BackfillRunRepository backfillRunRepository;
+    @Autowired
+    private FileProcessor fileProcessor;
+    @Autowired
+    private JobQueueService jobQueueService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+    @Autowired
+    @Qualifier("bedrockLimiter")
+    private AdaptiveRateLimiter bedrockLimiter;
+    @Autowired
+    @Qualifier("rekognitionLimiter")
+    private AdaptiveRateLimiter rekognitionLimiter;
+
+    @Value("${backfill.threads:4}")
+    private int threads;
+
+    @Value("${backfill.page-size:200}")
+    private int pageSize;
+
+    @Value("${backfill.files-per-second:2.0}")
+    private double filesPerSecond;
+
+    // How long to hold back when live calls are waiting on a rate limiter
+    @Value("${backfill.live-pause-ms:1000}")
+    private long livePauseMs;
+
+    // A RUNNING run not checkpointed for this long is considered abandoned
+    @Value("${backfill.stale-seconds:600}")
+    private int staleSeconds;
+
+    // Resume abandoned runs: this node's own at startup, stale ones of any node on every check
+    @Value("${backfill.resume-on-start:true}")
+    private boolean resumeOnStart;
+
+    private final RowMapper<FileDto> fileRowMapper = (rs, rowNum) -> FileDto.builder()
+            .id(rs.getObject("id", UUID.class))
+            .name(rs.getString("name"))
+            .fileUrl(rs.getString("file_url"))
+            .mimeType(rs.getString("mime_type"))
+            .fileSize(rs.getLong("file_size"))
+            .ownerId(rs.getObject("owner_id", UUID.class))
+            .folderId(rs.getObject("folder_id", UUID.class))
+            .folderPath(rs.getString("folder_path"))
+            .s3Key(rs.getString("s3_key"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+            .build();
+
+    private final Map<UUID, Future<?>> active = new ConcurrentHashMap<>();
+    private final Set<UUID> cancelRequested = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor workerExecutor;
+    private ExecutorService runExecutor;
+
+    @PostConstruct
+    public void start() {
+        // Separate from the live handler pools; a full queue makes the run's own thread do the work
+        workerExecutor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(pageSize),
+                new CustomizableThreadFactory("backfill-worker-"),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        workerExecutor.allowCoreThreadTimeOut(true);
+        runExecutor = Executors.newCachedThreadPool(new CustomizableThreadFactory("backfill-run-"));
+
+        pipelineMetrics.gauge("backfill.runs.active", active, Map::size);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Interrupted runs stay RUNNING and resume from their last checkpoint
+        runExecutor.shutdownNow();
+        workerExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeAbandonedRuns() {
+        if (!resumeOnStart) return;
+        String nodeId = jobQueueService.nodeId();
+        for (BackfillRun run : backfillRunRepository.findByStatus(BackfillStatus.RUNNING)) {
+            if (active.containsKey(run.getId())) continue;
+            if (jdbcTemplate.update(CLAIM_OWN_RUN, run.getId(), nodeId) == 1) {
+                log.info("Resuming backfill run {} interrupted by this node's restart after {} files", run.getId(), run.getProcessed());
+                launch(backfillRunRepository.findById(run.getId()).orElseThrow());
+            }
+        }
+        claimStaleRuns();
+    }
+
+    // A node that died without restarting leaves its runs to whichever node notices first
+    @Scheduled(fixedDelayString = "${backfill.stale-check-interval-ms:60000}")
+    public void claimStaleRuns() {
+        if (!resumeOnStart) return;
+        for (BackfillRun run : backfillRunRepository.findByStatus(BackfillStatus.RUNNING)) {
+            if (active.containsKey(run.getId())) continue;
+            if (jdbcTemplate.update(CLAIM_STALE_RUN, jobQueueService.nodeId(), run.getId(), staleSeconds) == 1) {
+                log.info("Resuming abandoned backfill run {} after {} files", run.getId(), run.getProcessed());
+                launch(backfillRunRepository.findById(run.getId()).orElseThrow());
+            }
+        }
+    }
+
+    public BackfillRun start(BackfillFilter filter) {
+        LocalDateTime now = LocalDateTime.now();
+        BackfillRun run = backfillRunRepository.save(BackfillRun.builder()
+                .id(UUID.randomUUID())
+                .status(BackfillStatus.RUNNING)
+                .filterJson(toJson(filter))
+                .owner(jobQueueService.nodeId())
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        log.info("Starting backfill run {} with {}", run.getId(), filter);
+        launch(run);
+        return run;
+    }
+
+    // Continues a cancelled, failed or abandoned run from its checkpoint
+    public BackfillRun resume(UUID runId) {
+        BackfillRun run = backfillRunRepository.findById(runId)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown backfill run " + runId));
+        if (run.getStatus() == BackfillStatus.COMPLETED) {
+            throw new IllegalStateException("Backfill run " + runId + " already completed");
+        }
+        if (active.containsKey(runId)) {
+            throw new IllegalStateException("Backfill run " + runId + " is already running");
+        }
+
+        run.setStatus(BackfillStatus.RUNNING);
+        run.setOwner(jobQueueService.nodeId());
+        run.setUpdatedAt(LocalDateTime.now());
+        run.setFinishedAt(null);
+        launch(backfillRunRepository.save(run));
+        return run;
+    }
+
+    // Takes effect at the next file; finished files stay checkpointed
+    public void cancel(UUID runId) {
+        if (!active.containsKey(runId)) {
+            throw new IllegalStateException("Backfill run " + runId + " is not running on this node");
+        }
+        cancelRequested.add(runId);
+    }
+
+    public Optional<BackfillRun> find(UUID runId) {
+        return backfillRunRepository.findById(runId);
+    }
+
+    private void launch(BackfillRun run) {
+        active.put(run.getId(), runExecutor.submit(() -> {
+            try {
+                execute(run);
+            } finally {
+                active.remove(run.getId());
+                cancelRequested.remove(run.getId());
+            }
+        }));
+    }
+
+    private void execute(BackfillRun run) {
+        try {
+            BackfillFilter filter = objectMapper.readValue(run.getFilterJson(), BackfillFilter.class);
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(filesPerSecond, 0.001));
+            long nextDispatch = System.nanoTime();
+
+            while (true) {
+                List<FileDto> page = fetchPage(filter, run.getCursorCreatedAt(), run.getCursorFileId());
+                if (page.isEmpty()) {
+                    finish(run, BackfillStatus.COMPLETED);
+                    return;
+                }
+
+                List<Future<JobStatus>> results = new ArrayList<>(page.size());
+                for (FileDto file : page) {
+                    if (cancelRequested.contains(run.getId())) break;
+                    nextDispatch = pace(run, nextDispatch, intervalNanos);
+                    results.add(workerExecutor.submit(() -> reprocess(file)));
+                }
+
+                // Checkpoint only what was dispatched, and only once all of it has finished
+                for (Future<JobStatus> result : results) {
+                    if (result.get() == JobStatus.COMPLETED) {
+                        run.setProcessed(run.getProcessed() + 1);
+                    } else {
+                        run.setFailed(run.getFailed() + 1);
+                    }
+                }
+                if (!results.isEmpty()) {
+                    FileDto last = page.get(results.size() - 1);
+                    run.setCursorCreatedAt(last.getCreatedAt());
+                    run.setCursorFileId(last.getId());
+                }
+                checkpoint(run);
+                log.info("Backfill run {}: {} processed, {} failed", run.getId(), run.getProcessed(), run.getFailed());
+
+                if (cancelRequested.contains(run.getId())) {
+                    finish(run, BackfillStatus.CANCELLED);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Backfill run {} interrupted, will resume from its checkpoint", run.getId());
+        } catch (RunTakenOverException e) {
+            // Files already dispatched finish on their own; the new owner redoes them from its checkpoint
+            log.warn("Backfill run {} was taken over by another node, stopping here", run.getId());
+        } catch (Exception e) {
+            log.error("Backfill run {} failed", run.getId(), e);
+            finish(run, BackfillStatus.FAILED);
+        }
+    }
+
+    private JobStatus reprocess(FileDto file) {
+        try {
+            JobStatus status = fileProcessor.process(file);
+            pipelineMetrics.increment("backfill.files", "status", status.name());
+            return status;
+        } catch (Exception e) {
+            log.error("Backfill failed for file {}", file.getId(), e);
+            pipelineMetrics.increment("backfill.files", "status", JobStatus.FAILED.name());
+            return JobStatus.FAILED;
+        }
+    }
+
+    // Own rate budget, and live traffic first: wait while anything is queued on the AI limiters
+    private long pace(BackfillRun run, long nextDispatch, long intervalNanos) throws InterruptedException {
+        while (bedrockLimiter.getWaiting() > 0 || rekognitionLimiter.getWaiting() > 0) {
+            pipelineMetrics.increment("backfill.yields");
+            // Yielding can outlast backfill.stale-seconds; keep the run from looking abandoned
+            heartbeat(run);
+            Thread.sleep(livePauseMs);
+        }
+        long wait = nextDispatch - System.nanoTime();
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        return Math.max(nextDispatch, System.nanoTime()) + intervalNanos;
+    }
+
+    private List<FileDto> fetchPage(BackfillFilter filter, LocalDateTime cursorCreatedAt, UUID cursorFileId) {
+        StringBuilder sql = new StringBuilder(SELECT_FILES);
+        List<Object> params = new ArrayList<>();
+
+        if (cursorCreatedAt != null && cursorFileId != null) {
+            sql.append(" AND (created_at, id) > (?, ?)");
+            params.add(Timestamp.valueOf(cursorCreatedAt));
+            params.add(cursorFileId);
+        }
+        if (filter.getMimeTypes() != null && !filter.getMimeTypes().isEmpty()) {
+            List<String> conditions = new ArrayList<>();
+            for (String pattern : filter.getMimeTypes()) {
+                String type = pattern.trim().toLowerCase(Locale.ROOT);
+                if (type.endsWith("/*")) {
+                    conditions.add("lower(mime_type) LIKE ?");
+                    params.add(type.substring(0, type.length() - 1) + "%");
+                } else {
+                    conditions.add("lower(mime_type) = ?");
+                    params.add(type);
+                }
+            }
+            sql.append(" AND (").append(String.join(" OR ", conditions)).append(")");
+        }
+        if (filter.getOwnerId() != null) {
+            sql.append(" AND owner_id = ?");
+            params.add(filter.getOwnerId());
+        }
+        if (filter.getFolderId() != null) {
+            sql.append(" AND folder_id = ?");
+            params.add(filter.getFolderId());
+        }
+        if (filter.getCreatedFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            sql.append(" AND created_at < ?");
+            params.add(Timestamp.valueOf(filter.getCreatedTo()));
+        }
+        sql.append(" ORDER BY created_at, id LIMIT ?");
+        params.add(pageSize);
+
+        return jdbcTemplate.query(sql.toString(), fileRowMapper, params.toArray());
+    }
+
+    private void checkpoint(BackfillRun run) {
+        Timestamp cursorCreatedAt = run.getCursorCreatedAt() == null ? null : Timestamp.valueOf(run.getCursorCreatedAt());
+        int updated = jdbcTemplate.update(CHECKPOINT, cursorCreatedAt, run.getCursorFileId(),
+                run.getProcessed(), run.getFailed(), run.getId(), jobQueueService.nodeId());
+        if (updated == 0) throw new RunTakenOverException();
+        run.setUpdatedAt(LocalDateTime.now());
+    }
+
+    // At most a few writes per stale window, however short the pause
+    private void heartbeat(BackfillRun run) {
+        LocalDateTime now = LocalDateTime.now();
+        if (run.getUpdatedAt() != null && run.getUpdatedAt().isAfter(now.minusSeconds(staleSeconds / 4))) return;
+        if (jdbcTemplate.update(HEARTBEAT, run.getId(), jobQueueService.nodeId()) == 0) throw new RunTakenOverException();
+        run.setUpdatedAt(now);
+    }
+
+    private void finish(BackfillRun run, BackfillStatus status) {
+        int updated = jdbcTemplate.update(FINISH, status.name(), run.getProcessed(), run.getFailed(),
+                run.getId(), jobQueueService.nodeId());
+        if (updated == 0) {
+            log.warn("Backfill run {} was taken over by another node, not marking it {}", run.getId(), status);
+            return;
+        }
+        run.setStatus(status);
+        run.setUpdatedAt(LocalDateTime.now());
+        run.setFinishedAt(LocalDateTime.now());
+        log.info("Backfill run {} {}: {} processed, {} failed", run.getId(), status, run.getProcessed(), run.getFailed());
+    }
+
+    // Another node claimed the run (stale takeover or an explicit resume there)
+    private static class RunTakenOverException extends RuntimeException {
+    }
+
+    private String toJson(BackfillFilter filter) {
+        try {
+            return objectMapper.writeValueAsString(filter);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize backfill filter", e);
+        }
+    }
+}
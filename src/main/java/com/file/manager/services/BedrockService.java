@@ -1,99 +1,346 @@
 package com.file.manager.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.manager.dto.ScanResult;
 import com.file.manager.dto.SummaryResponse;
+import com.file.manager.enums.AnalysisMode;
+import com.file.manager.enums.FailureKind;
+import com.file.manager.enums.PromptType;
+import com.file.manager.metrics.PipelineMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BedrockService {
 
-    private final BedrockRuntimeClient bedrockRuntimeClient;
+    private final BedrockRuntimeAsyncClient bedrockRuntimeAsyncClient;
     private final ObjectMapper objectMapper;
+    private final TextChunker textChunker;
+    private final PipelineMetrics pipelineMetrics;
+    private final ModelRouter modelRouter;
 
-    @Value("${aws.bedrock.model-id}")
-    private String bedrockModelId;   // configurable via properties
+    @Autowired
+    @Qualifier("bedrockLimiter")
+    private AdaptiveRateLimiter bedrockLimiter;
+
+    @Value("${aws.bedrock.analysis-mode:PER_PROMPT}")
+    private AnalysisMode analysisMode;
+
+    // Documents estimated above this many tokens are analyzed chunk by chunk
+    @Value("${aws.bedrock.chunk-tokens:2000}")
+    private int chunkTokens;
 
     public SummaryResponse analyzeContent(String content, int wordLimit) {
-        try {
-            // Ask Titan with specialized prompts
-            String summary = askTitan(buildSummaryPrompt(content, wordLimit));
-            String tagsCsv = askTitan(buildTagsPrompt(content));
-            String sensitiveStr = askTitan(buildSensitivePrompt(content));
-            String confidentialStr = askTitan(buildConfidentialPrompt(content));
-
-            // Process tags: split, dedup, limit 8
-            List<String> tags = Arrays.stream(tagsCsv.split(","))
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .map(this::normalizeTag)
-                    .distinct()
-                    .limit(8)
-                    .collect(Collectors.toList());
-
-            boolean sensitive = parseBoolean(sensitiveStr);
-            boolean confidential = parseBoolean(confidentialStr);
-
-          return SummaryResponse.builder()
-                    .tags(tags)
-                    .summary(summary)
-                    .isConfidential(confidential)
-                    .isSensitive(sensitive)
-                    .build();
+        return analyzeContent(content, wordLimit, ScanResult.EMPTY);
+    }
 
+    // Flags already established by the local scanner are not asked of the model again
+    public SummaryResponse analyzeContent(String content, int wordLimit, ScanResult localScan) {
+        try {
+            return analyzeContentAsync(content, wordLimit, localScan).join();
 
         } catch (Exception e) {
-            log.error("Bedrock analysis failed: {}", e.getMessage());
+            Throwable cause = unwrap(e);
+            if (!isRejectedInput(cause)) {
+                // Throttles, timeouts, 5xx and dropped connections: retry the file instead of saving empty metadata
+                String reason = AdaptiveRateLimiter.isThrottle(cause) ? "throttled" : "bedrock_failed";
+                throw new FileProcessingException(FailureKind.RETRYABLE, reason, "Bedrock analysis failed: " + cause, cause);
+            }
+            // The model refuses this input and will on every attempt: keep the local flags, never cache the result
+            log.warn("Bedrock rejected the content, saving without a summary: {}", cause.getMessage());
+            pipelineMetrics.increment("bedrock.fallbacks", "kind", "rejected_input");
             SummaryResponse fallback = new SummaryResponse();
             fallback.setSummary(null);
             fallback.setTags(List.of());
-            fallback.setSensitive(false);
-            fallback.setConfidential(false);
+            fallback.setSensitive(localScan.isSensitive());
+            fallback.setConfidential(localScan.isConfidential());
+            fallback.setDegraded(true);
             return fallback;
         }
     }
 
-    private String askTitan(String prompt) throws Exception {
-        Map<String, Object> body = Map.of(
-                "inputText", prompt,
-                "textGenerationConfig", Map.of(
-                        "maxTokenCount", 200,
-                        "temperature", 0.0,
-                        "topP", 0.9
-                )
-        );
-        String requestBody = objectMapper.writeValueAsString(body);
+    private static boolean isRejectedInput(Throwable cause) {
+        return cause instanceof AwsServiceException ase
+                && ase.awsErrorDetails() != null
+                && "ValidationException".equals(ase.awsErrorDetails().errorCode());
+    }
+
+    // Non-blocking: every Titan call is in flight on the async client, no thread waits on a response
+    public CompletableFuture<SummaryResponse> analyzeContentAsync(String content, int wordLimit, ScanResult localScan) {
+        CompletableFuture<SummaryResponse> analysis = textChunker.estimateTokens(content) > chunkTokens
+                ? analyzeChunked(content, wordLimit, localScan)
+                : analyzeSingle(content, wordLimit, localScan);
 
-        InvokeModelRequest request = InvokeModelRequest.builder()
-                .modelId(bedrockModelId)
-                .accept("application/json")
-                .contentType("application/json")
-                .body(SdkBytes.fromString(requestBody, StandardCharsets.UTF_8))
+        // A local finding is definitive; the model can only add flags, never clear them
+        return analysis.thenApply(response -> {
+            response.setSensitive(response.isSensitive() || localScan.isSensitive());
+            response.setConfidential(response.isConfidential() || localScan.isConfidential());
+            return response;
+        });
+    }
+
+    private CompletableFuture<SummaryResponse> analyzeSingle(String content, int wordLimit, ScanResult localScan) {
+        if (analysisMode != AnalysisMode.STRUCTURED) {
+            return analyzePerPrompt(content, wordLimit, localScan);
+        }
+        return analyzeStructured(content, wordLimit)
+                .exceptionallyCompose(e -> {
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof JsonProcessingException || cause instanceof IllegalArgumentException) {
+                        log.warn("Structured Bedrock output rejected, falling back to per-prompt analysis: {}", cause.getMessage());
+                        pipelineMetrics.increment("bedrock.fallbacks", "kind", "structured_parse");
+                        return analyzePerPrompt(content, wordLimit, localScan);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    // Map: analyze every chunk concurrently. Reduce: partial summaries are combined in levels that fit the chunk budget.
+    private CompletableFuture<SummaryResponse> analyzeChunked(String content, int wordLimit, ScanResult localScan) {
+        List<String> chunks = textChunker.chunk(content, chunkTokens);
+        log.info("Document split into {} chunks of at most {} tokens", chunks.size(), chunkTokens);
+
+        List<CompletableFuture<SummaryResponse>> partialFutures = chunks.stream()
+                .map(chunk -> analyzeSingle(chunk, wordLimit, localScan))
+                .toList();
+
+        return CompletableFuture.allOf(partialFutures.toArray(CompletableFuture[]::new))
+                .thenCompose(v -> {
+                    List<SummaryResponse> partials = partialFutures.stream().map(CompletableFuture::join).toList();
+
+                    List<String> partialSummaries = partials.stream()
+                            .map(SummaryResponse::getSummary)
+                            .filter(Objects::nonNull)
+                            .toList();
+
+                    // Tags that show up in more chunks rank first
+                    Map<String, Long> tagCounts = partials.stream()
+                            .flatMap(p -> p.getTags() == null ? Stream.empty() : p.getTags().stream())
+                            .collect(Collectors.groupingBy(tag -> tag, LinkedHashMap::new, Collectors.counting()));
+                    List<String> tags = cleanTags(tagCounts.entrySet().stream()
+                            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                            .map(Map.Entry::getKey));
+
+                    return reduce(partialSummaries, wordLimit)
+                            .thenApply(summary -> SummaryResponse.builder()
+                                    .summary(summary)
+                                    .tags(tags)
+                                    .isSensitive(partials.stream().anyMatch(SummaryResponse::isSensitive))
+                                    .isConfidential(partials.stream().anyMatch(SummaryResponse::isConfidential))
+                                    .build());
+                });
+    }
+
+    // Every batch that fits the budget is summarized concurrently; repeated until one prompt covers all that is left
+    private CompletableFuture<String> reduce(List<String> summaries, int wordLimit) {
+        List<List<String>> batches = reduceBatches(summaries);
+        if (batches.size() == 1) {
+            return askTitan(PromptType.REDUCE, buildReducePrompt(String.join("\n\n", batches.get(0)), wordLimit));
+        }
+
+        List<CompletableFuture<String>> level = batches.stream()
+                .map(batch -> batch.size() == 1
+                        ? CompletableFuture.completedFuture(batch.get(0))
+                        : askTitan(PromptType.REDUCE, buildReducePrompt(String.join("\n\n", batch), wordLimit)))
+                .toList();
+        return CompletableFuture.allOf(level.toArray(CompletableFuture[]::new))
+                .thenCompose(v -> reduce(level.stream().map(CompletableFuture::join).toList(), wordLimit));
+    }
+
+    // Packed up to chunkTokens, but never fewer than two per batch, so every level has fewer summaries than the last
+    List<List<String>> reduceBatches(List<String> summaries) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int tokens = 0;
+        for (String summary : summaries) {
+            int size = textChunker.estimateTokens(summary) + 1;
+            if (current.size() >= 2 && tokens + size > chunkTokens) {
+                batches.add(current);
+                current = new ArrayList<>();
+                tokens = 0;
+            }
+            current.add(summary);
+            tokens += size;
+        }
+        batches.add(current);
+        return batches;
+    }
+
+    private CompletableFuture<SummaryResponse> analyzeStructured(String content, int wordLimit) {
+        // Not sanitized: the model may wrap the JSON in a code fence, which sanitizeOutput would drop entirely
+        return invokeTitan(PromptType.STRUCTURED, buildStructuredPrompt(content, wordLimit))
+                .thenApply(output -> {
+                    try {
+                        return parseStructuredOutput(output == null ? "" : output);
+                    } catch (JsonProcessingException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private CompletableFuture<SummaryResponse> analyzePerPrompt(String content, int wordLimit, ScanResult localScan) {
+        // Ask Titan with specialized prompts, all in flight at once; flag prompts the scanner already answered are skipped
+        CompletableFuture<String> summaryFuture = askTitan(PromptType.SUMMARY, buildSummaryPrompt(content, wordLimit));
+        CompletableFuture<String> tagsFuture = askTitan(PromptType.TAGS, buildTagsPrompt(content));
+        CompletableFuture<String> sensitiveFuture = localScan.isSensitive()
+                ? answeredLocally(PromptType.SENSITIVE)
+                : askTitan(PromptType.SENSITIVE, buildSensitivePrompt(content));
+        CompletableFuture<String> confidentialFuture = localScan.isConfidential()
+                ? answeredLocally(PromptType.CONFIDENTIAL)
+                : askTitan(PromptType.CONFIDENTIAL, buildConfidentialPrompt(content));
+
+        return CompletableFuture.allOf(summaryFuture, tagsFuture, sensitiveFuture, confidentialFuture)
+                .thenApply(v -> {
+                    // Process tags: split, dedup, limit 8
+                    List<String> tags = cleanTags(Arrays.stream(tagsFuture.join().split(",")));
+
+                    boolean sensitive = parseBoolean(sensitiveFuture.join());
+                    boolean confidential = parseBoolean(confidentialFuture.join());
+
+                    return SummaryResponse.builder()
+                            .tags(tags)
+                            .summary(summaryFuture.join())
+                            .isConfidential(confidential)
+                            .isSensitive(sensitive)
+                            .build();
+                });
+    }
+
+    // Strict: every field must be present with the expected JSON type, otherwise the caller falls back
+    private SummaryResponse parseStructuredOutput(String output) throws JsonProcessingException {
+        int start = output.indexOf('{');
+        int end = output.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            throw new IllegalArgumentException("no JSON object in model output");
+        }
+
+        JsonNode root = objectMapper.readTree(output.substring(start, end + 1));
+
+        JsonNode summary = root.get("summary");
+        if (summary == null || !summary.isTextual() || summary.asText().isBlank()) {
+            throw new IllegalArgumentException("'summary' must be a non-empty string");
+        }
+
+        JsonNode tags = root.get("tags");
+        if (tags == null || !tags.isArray()) {
+            throw new IllegalArgumentException("'tags' must be an array");
+        }
+        List<String> rawTags = new ArrayList<>();
+        for (JsonNode tag : tags) {
+            if (!tag.isTextual()) {
+                throw new IllegalArgumentException("'tags' must only contain strings");
+            }
+            rawTags.add(tag.asText());
+        }
+
+        JsonNode sensitive = root.get("sensitive");
+        JsonNode confidential = root.get("confidential");
+        if (sensitive == null || !sensitive.isBoolean() || confidential == null || !confidential.isBoolean()) {
+            throw new IllegalArgumentException("'sensitive' and 'confidential' must be booleans");
+        }
+
+        return SummaryResponse.builder()
+                .summary(summary.asText().trim())
+                .tags(cleanTags(rawTags.stream()))
+                .isSensitive(sensitive.asBoolean())
+                .isConfidential(confidential.asBoolean())
                 .build();
+    }
+
+    private CompletableFuture<String> answeredLocally(PromptType promptType) {
+        pipelineMetrics.increment("bedrock.prompts.skipped", "prompt", promptType.key());
+        return CompletableFuture.completedFuture("true");
+    }
+
+    private CompletableFuture<String> askTitan(PromptType promptType, String prompt) {
+        return invokeTitan(promptType, prompt).thenApply(BedrockService::sanitizeOutput);
+    }
+
+    // Model, token limit, temperature and timeout come from the prompt type's route
+    private CompletableFuture<String> invokeTitan(PromptType promptType, String prompt) {
+        InvokeModelRequest request;
+        try {
+            request = modelRouter.request(promptType, prompt);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return pipelineMetrics.timeAsync(PipelineMetrics.bedrock(promptType.key()),
+                        () -> bedrockLimiter.submit(() -> bedrockRuntimeAsyncClient.invokeModel(request)))
+                .thenApply(this::readOutputText);
+    }
+
+    private String readOutputText(InvokeModelResponse response) {
+        try {
+            return parseOutputText(objectMapper, response.body().asUtf8String());
+        } catch (JsonProcessingException e) {
+            // Not a structured-output problem, so it must not trigger the per-prompt fallback
+            throw new IllegalStateException("Unreadable Bedrock response", e);
+        }
+    }
 
-        InvokeModelResponse response = bedrockRuntimeClient.invokeModel(request);
-        Map<String, Object> json = objectMapper.readValue(response.body().asUtf8String(), Map.class);
-        String outputText = ((List<Map<String, String>>) json.get("results"))
+    static String parseOutputText(ObjectMapper objectMapper, String responseBody) throws JsonProcessingException {
+        Map<String, Object> json = objectMapper.readValue(responseBody, Map.class);
+        return ((List<Map<String, String>>) json.get("results"))
                 .get(0).get("outputText");
+    }
 
-        return sanitizeOutput(outputText);
+    private Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
     }
 
     // -------- Prompt Builders --------
 
-    private String buildSummaryPrompt(String content, int wordLimit) {
+    static String buildStructuredPrompt(String content, int wordLimit) {
+        return String.format(
+                """
+                The following is text from a document:
+                %s
+
+                Analyze the document and respond with ONLY a JSON object, no other text, in exactly this form:
+                {"summary": "<one paragraph of no more than %d words>", "tags": ["<tag>", "<tag>", "<tag>", "<tag>", "<tag>"], "sensitive": <true|false>, "confidential": <true|false>}
+                "sensitive" is true if the text contains PII, financial, health, or personal data.
+                "confidential" is true if the text contains contracts, invoices, corporate secrets, or internal documents.
+                """,
+                content, wordLimit
+        );
+    }
+
+    static String buildReducePrompt(String partialSummaries, int wordLimit) {
+        return String.format(
+                """
+                The following are summaries of consecutive parts of one document:
+                %s
+
+                Combine them into a single summary of the whole document in one paragraph, using no more than %d words.
+                Respond ONLY with the paragraph; do not include headings, labels, or extra text.
+                """,
+                partialSummaries, wordLimit
+        );
+    }
+
+    static String buildSummaryPrompt(String content, int wordLimit) {
         return String.format(
                 """
                 The following is text from a document:
@@ -107,7 +354,7 @@ public class BedrockService {
     }
 
 
-    private String buildTagsPrompt(String content) {
+    static String buildTagsPrompt(String content) {
         return String.format("""
         %s
 
@@ -115,7 +362,7 @@ public class BedrockService {
     }
 
 
-    private String buildSensitivePrompt(String content) {
+    static String buildSensitivePrompt(String content) {
         return String.format("""
         %s
 
@@ -125,7 +372,7 @@ public class BedrockService {
         """, content);
     }
 
-    private String buildConfidentialPrompt(String content) {
+    static String buildConfidentialPrompt(String content) {
         return String.format("""
         %s
 
@@ -138,18 +385,28 @@ public class BedrockService {
 
     // -------- Helpers --------
 
-    private String sanitizeOutput(String output) {
+    static String sanitizeOutput(String output) {
         if (output == null) return "";
         return output.replaceAll("(?s)```.*?```", "")
                 .replace("`", "")
                 .trim();
     }
 
-    private boolean parseBoolean(String value) {
+    static List<String> cleanTags(Stream<String> rawTags) {
+        return rawTags
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(BedrockService::normalizeTag)
+                .distinct()
+                .limit(8)
+                .collect(Collectors.toList());
+    }
+
+    static boolean parseBoolean(String value) {
         return value != null && value.trim().equalsIgnoreCase("true");
     }
 
-    private String normalizeTag(String tag) {
+    static String normalizeTag(String tag) {
         // Normalize casing, remove trailing punctuation
         return tag.replaceAll("[^a-zA-Z0-9\\s]", "").trim();
     }
@@ -0,0 +1,276 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.ScanFinding;
+import com.file.manager.dto.ScanResult;
+import com.file.manager.enums.FindingType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+
+/**
+ * Local PII / confidential-content detection over OCR and extracted document text.
+ * Runs in linear time: keywords go through one Aho-Corasick automaton, numbers and
+ * tokens are classified by a hand-written scan instead of backtracking regexes.
+ */
+@Component
+public class ConfidentialScanner {
+
+    // Keywords are matched case-insensitively over ASCII; anything else resets the automaton
+    private static final int ALPHABET = 128;
+    private static final int MIN_TOKEN_LENGTH = 20;
+
+    private final String[] keywords;
+    private final FindingType[] keywordTypes;
+    // Complete DFA: every state has a transition for every character, failure links already folded in
+    private final int[][] transitions;
+    // Keyword ids ending at each state, including those reached through failure links
+    private final int[][] outputs;
+
+    public ConfidentialScanner(
+            @Value("${confidential.keywords:invoice,confidential,contract,bank,credit,debit,form}")
+            List<String> confidentialKeywords,
+            @Value("${confidential.identity-keywords:passport,driver license,driving licence,ssn,aadhaar,id card,identity card,national id}")
+            List<String> identityKeywords) {
+
+        List<String> words = new ArrayList<>();
+        List<FindingType> types = new ArrayList<>();
+        addKeywords(confidentialKeywords, FindingType.CONFIDENTIAL_KEYWORD, words, types);
+        addKeywords(identityKeywords, FindingType.IDENTITY_KEYWORD, words, types);
+
+        this.keywords = words.toArray(String[]::new);
+        this.keywordTypes = types.toArray(FindingType[]::new);
+
+        // Trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> matches = new ArrayList<>();
+        trie.add(newState());
+        matches.add(new ArrayList<>());
+        for (int k = 0; k < keywords.length; k++) {
+            int state = 0;
+            for (char c : keywords[k].toCharArray()) {
+                if (trie.get(state)[c] < 0) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(newState());
+                    matches.add(new ArrayList<>());
+                }
+                state = trie.get(state)[c];
+            }
+            matches.get(state).add(k);
+        }
+
+        // Failure links, breadth first so a state's failure target is always complete before it
+        int[] fail = new int[trie.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        int[] root = trie.get(0);
+        for (int c = 0; c < ALPHABET; c++) {
+            if (root[c] < 0) {
+                root[c] = 0;
+            } else {
+                queue.add(root[c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] row = trie.get(state);
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = row[c];
+                if (next < 0) {
+                    row[c] = trie.get(fail[state])[c];
+                } else {
+                    fail[next] = trie.get(fail[state])[c];
+                    matches.get(next).addAll(matches.get(fail[next]));
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = trie.toArray(int[][]::new);
+        this.outputs = matches.stream()
+                .map(ids -> ids.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    public ScanResult scan(String text) {
+        if (text == null || text.isBlank()) return ScanResult.EMPTY;
+
+        List<ScanFinding> findings = new ArrayList<>();
+        scanKeywordsAndTokens(text, findings);
+        scanNumbers(text, findings);
+        return findings.isEmpty() ? ScanResult.EMPTY : new ScanResult(findings);
+    }
+
+    private void scanKeywordsAndTokens(String text, List<ScanFinding> findings) {
+        int length = text.length();
+        int state = 0;
+        int tokenStart = -1;
+        boolean tokenHasLetter = false;
+        boolean tokenHasDigit = false;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            state = c < ALPHABET ? transitions[state][fold(c)] : 0;
+            for (int k : outputs[state]) {
+                int start = i - keywords[k].length() + 1;
+                // Whole words only: "id card" must not fire inside "valid cardholder"
+                if (isBoundary(text, start - 1) && isBoundary(text, i + 1)) {
+                    findings.add(new ScanFinding(keywordTypes[k], start, i + 1));
+                }
+            }
+
+            if (isTokenChar(c)) {
+                if (tokenStart < 0) {
+                    tokenStart = i;
+                    tokenHasLetter = false;
+                    tokenHasDigit = false;
+                }
+                tokenHasLetter |= isAsciiLetter(c);
+                tokenHasDigit |= isAsciiDigit(c);
+            } else if (tokenStart >= 0) {
+                addToken(tokenStart, i, tokenHasLetter, tokenHasDigit, findings);
+                tokenStart = -1;
+            }
+        }
+        if (tokenStart >= 0) {
+            addToken(tokenStart, length, tokenHasLetter, tokenHasDigit, findings);
+        }
+    }
+
+    // Long words and plain digit runs are common in OCR; a key mixes both
+    private void addToken(int start, int end, boolean hasLetter, boolean hasDigit, List<ScanFinding> findings) {
+        if (end - start >= MIN_TOKEN_LENGTH && hasLetter && hasDigit) {
+            findings.add(new ScanFinding(FindingType.SECRET_TOKEN, start, end));
+        }
+    }
+
+    // Groups of digits joined by single separators, e.g. "4111 1111 1111 1111", "123-45-6789", "01/02/1990"
+    private void scanNumbers(String text, List<ScanFinding> findings) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!isAsciiDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            // Digits glued to letters (part numbers, tokens) are not numbers of interest
+            if (i > 0 && Character.isLetter(text.charAt(i - 1))) {
+                while (i < length && Character.isLetterOrDigit(text.charAt(i))) i++;
+                continue;
+            }
+
+            int start = i;
+            int groups = 0;
+            int digits = 0;
+            int[] groupLengths = new int[3];
+            char[] separators = new char[2];
+            boolean cardSeparators = true;
+
+            while (true) {
+                int groupStart = i;
+                while (i < length && isAsciiDigit(text.charAt(i))) i++;
+                if (groups < 3) groupLengths[groups] = i - groupStart;
+                digits += i - groupStart;
+                groups++;
+
+                if (i + 1 < length && isSeparator(text.charAt(i)) && isAsciiDigit(text.charAt(i + 1))) {
+                    char separator = text.charAt(i);
+                    if (groups <= 2) separators[groups - 1] = separator;
+                    if (separator != ' ' && separator != '-') cardSeparators = false;
+                    i++;
+                } else {
+                    break;
+                }
+            }
+
+            if (i < length && Character.isLetter(text.charAt(i))) {
+                continue;
+            }
+
+            if (cardSeparators && digits >= 13 && digits <= 19 && luhnValid(text, start, i)) {
+                findings.add(new ScanFinding(FindingType.CARD_NUMBER, start, i));
+            } else if (groups == 3 && separators[0] == '-' && separators[1] == '-'
+                    && groupLengths[0] == 3 && groupLengths[1] == 2 && groupLengths[2] == 4) {
+                findings.add(new ScanFinding(FindingType.NATIONAL_ID, start, i));
+            } else if (groups == 3 && separators[0] == separators[1] && separators[0] != ' '
+                    && isDate(groupLengths)) {
+                findings.add(new ScanFinding(FindingType.DATE, start, i));
+            }
+        }
+    }
+
+    // d/m/yy(yy), m-d-yyyy, yyyy-mm-dd
+    private static boolean isDate(int[] groupLengths) {
+        boolean dayFirst = groupLengths[0] <= 2 && groupLengths[1] <= 2
+                && (groupLengths[2] == 2 || groupLengths[2] == 4);
+        boolean yearFirst = groupLengths[0] == 4 && groupLengths[1] <= 2 && groupLengths[2] <= 2;
+        return dayFirst || yearFirst;
+    }
+
+    private static boolean luhnValid(String text, int start, int end) {
+        int sum = 0;
+        boolean doubleIt = false;
+        for (int i = end - 1; i >= start; i--) {
+            char c = text.charAt(i);
+            if (!isAsciiDigit(c)) continue;
+            int digit = c - '0';
+            if (doubleIt) {
+                digit *= 2;
+                if (digit > 9) digit -= 9;
+            }
+            sum += digit;
+            doubleIt = !doubleIt;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static void addKeywords(List<String> source, FindingType type, List<String> words, List<FindingType> types) {
+        for (String keyword : source) {
+            String normalized = keyword.trim().toLowerCase(Locale.ROOT);
+            if (normalized.isEmpty()) continue;
+            if (!normalized.chars().allMatch(c -> c < ALPHABET)) {
+                throw new IllegalArgumentException("Confidential keywords must be ASCII: " + keyword);
+            }
+            words.add(normalized);
+            types.add(type);
+        }
+    }
+
+    private static int[] newState() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    // Lowercase, and treat any whitespace as the single space used in multi-word keywords
+    private static char fold(char c) {
+        if (c >= 'A' && c <= 'Z') return (char) (c + ('a' - 'A'));
+        if (c == '\t' || c == '\n' || c == '\r' || c == '\f') return ' ';
+        return c;
+    }
+
+    private static boolean isBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    private static boolean isTokenChar(char c) {
+        return isAsciiLetter(c) || isAsciiDigit(c) || c == '_' || c == '-';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '-' || c == '/' || c == '.';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
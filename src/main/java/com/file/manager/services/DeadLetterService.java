@@ -0,0 +1,95 @@
+package com.file.manager.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.manager.dto.FileDto;
+import com.file.manager.enums.FailureKind;
+import com.file.manager.enums.FileType;
+import com.file.manager.metrics.PipelineMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * details.dead_letter: files taken out of the pipeline because retrying cannot help or the
+ * attempts ran out. The job is marked FAILED, so a backfill over failed files replays them
+ * once the cause is fixed.
+ */
+@Slf4j
+@Service
+public class DeadLetterService {
+
+    private static final String UPSERT_DEAD_LETTER = """
+            INSERT INTO details.dead_letter
+                (id, file_id, file_type, payload, failure_kind, reason, error, attempts, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, now(), now())
+            ON CONFLICT (id) DO UPDATE SET
+                failure_kind = EXCLUDED.failure_kind,
+                reason = EXCLUDED.reason,
+                error = EXCLUDED.error,
+                attempts = EXCLUDED.attempts,
+                updated_at = now()
+            """;
+
+    // Jobs whose lease ran out on their last attempt: FAILED and dead-lettered in one statement.
+    // An existing row is kept, it has the actual failure.
+    private static final String FAIL_EXHAUSTED = """
+            WITH failed AS (
+                UPDATE details.job SET job_status = 'FAILED', lease_owner = NULL, lease_expires_at = NULL, updated_at = now()
+                WHERE job_status = 'IN_PROGRESS' AND lease_expires_at < now() AND COALESCE(attempts, 0) >= ?
+                RETURNING id, file_id, file_type, payload, attempts
+            )
+            INSERT INTO details.dead_letter
+                (id, file_id, file_type, payload, failure_kind, reason, error, attempts, created_at, updated_at)
+            SELECT id, file_id, file_type, payload, 'RETRYABLE', 'attempts_exhausted',
+                   'Lease expired on the last allowed attempt without a result', attempts, now(), now()
+            FROM failed
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    // Throws when the row cannot be written, so the caller keeps the message or job instead of losing it
+    public void record(UUID jobId, FileDto file, FileProcessingException failure, int attempts) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(file);
+        } catch (Exception e) {
+            payload = String.valueOf(file);
+        }
+        insert(jobId, file.getId(), FileType.fromMimeType(file.getMimeType()), payload, failure, attempts);
+        log.warn("Dead-lettered file {} after {} attempt(s): {} ({})",
+                file.getId(), attempts, failure.getReason(), failure.getMessage());
+    }
+
+    // A message or job payload that does not even deserialize
+    public void recordUnreadable(UUID jobId, String payload, Exception error) {
+        FileProcessingException failure = new FileProcessingException(FailureKind.PERMANENT, "unreadable_message",
+                error.getClass().getSimpleName() + ": " + error.getMessage(), error);
+        insert(jobId, null, null, payload, failure, 1);
+        log.warn("Dead-lettered unreadable message {}", jobId);
+    }
+
+    // Returns how many jobs were dead-lettered
+    public int recordExhausted(int maxAttempts) {
+        int failed = jdbcTemplate.update(FAIL_EXHAUSTED, maxAttempts);
+        if (failed > 0) {
+            pipelineMetrics.increment("files.dead.lettered", failed, "kind", FailureKind.RETRYABLE.name(), "reason", "attempts_exhausted");
+        }
+        return failed;
+    }
+
+    private void insert(UUID jobId, UUID fileId, FileType fileType, String payload, FileProcessingException failure, int attempts) {
+        jdbcTemplate.update(UPSERT_DEAD_LETTER,
+                jobId, fileId, fileType == null ? null : fileType.name(), payload,
+                failure.getKind().name(), failure.getReason(), failure.getMessage(), attempts);
+        pipelineMetrics.increment("files.dead.lettered", "kind", failure.getKind().name(), "reason", failure.getReason());
+    }
+}
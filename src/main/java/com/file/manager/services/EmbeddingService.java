@@ -0,0 +1,133 @@
+package com.file.manager.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.manager.metrics.PipelineMetrics;
+import com.file.manager.models.Metadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Titan text embeddings for similar-file search. A file is embedded from its summary and
+ * tags, i.e. what the analysis already distilled, not the raw text.
+ */
+@Slf4j
+@Service
+public class EmbeddingService {
+
+    @Autowired
+    private BedrockRuntimeAsyncClient bedrockRuntimeAsyncClient;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+    @Autowired
+    @Qualifier("bedrockLimiter")
+    private AdaptiveRateLimiter bedrockLimiter;
+
+    @Value("${embedding.enabled:true}")
+    private boolean enabled;
+
+    @Value("${embedding.model-id:amazon.titan-embed-text-v2:0}")
+    private String modelId;
+
+    // Titan v2 supports 256, 512 or 1024
+    @Value("${embedding.dimensions:512}")
+    private int dimensions;
+
+    @Value("${embedding.max-chars:20000}")
+    private int maxChars;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Sets the metadata's embedding unless it already has one of the right size. Best effort:
+     * a file without a vector is still processed, it just has no similar files.
+     */
+    public void attach(Metadata metadata) {
+        if (!enabled) return;
+        if (metadata.getEmbedding() != null && metadata.getEmbedding().length == dimensions) return;
+
+        String text = embeddingText(metadata.getSummary(), metadata.getAiTag());
+        if (text.isBlank()) return;
+
+        try {
+            metadata.setEmbedding(embed(text).join());
+        } catch (Exception e) {
+            log.warn("No embedding for file {}: {}", metadata.getFileId(), e.getMessage());
+            pipelineMetrics.increment("embedding.failures");
+            metadata.setEmbedding(null);
+        }
+    }
+
+    public CompletableFuture<float[]> embed(String text) {
+        String input = text.length() > maxChars ? text.substring(0, maxChars) : text;
+        String requestBody;
+        try {
+            requestBody = objectMapper.writeValueAsString(Map.of(
+                    "inputText", input,
+                    "dimensions", dimensions,
+                    "normalize", true));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        InvokeModelRequest request = InvokeModelRequest.builder()
+                .modelId(modelId)
+                .accept("application/json")
+                .contentType("application/json")
+                .body(SdkBytes.fromString(requestBody, StandardCharsets.UTF_8))
+                .build();
+
+        return pipelineMetrics.timeAsync(PipelineMetrics.bedrock("embedding"),
+                        () -> bedrockLimiter.submit(() -> bedrockRuntimeAsyncClient.invokeModel(request)))
+                .thenApply(response -> {
+                    try {
+                        return parseEmbedding(objectMapper, response.body().asUtf8String());
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException("Unreadable embedding response", e);
+                    }
+                });
+    }
+
+    static String embeddingText(String summary, List<String> tags) {
+        StringBuilder text = new StringBuilder();
+        if (summary != null) text.append(summary.trim());
+        if (tags != null && !tags.isEmpty()) {
+            if (!text.isEmpty()) text.append("\n");
+            text.append("Tags: ").append(String.join(", ", tags));
+        }
+        return text.toString();
+    }
+
+    // {"embedding": [0.01, ...], "inputTextTokenCount": 12}
+    static float[] parseEmbedding(ObjectMapper objectMapper, String responseBody) throws JsonProcessingException {
+        JsonNode embedding = objectMapper.readTree(responseBody).path("embedding");
+        if (!embedding.isArray() || embedding.isEmpty()) {
+            throw new IllegalStateException("Embedding response has no vector");
+        }
+        float[] vector = new float[embedding.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) embedding.get(i).asDouble();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,94 @@
+package com.file.manager.services;
+
+import com.file.manager.enums.FailureKind;
+import org.apache.tika.exception.EncryptedDocumentException;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.exception.UnsupportedFormatException;
+import org.apache.tika.exception.ZeroByteFileException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Decides whether a processing failure is worth retrying. Anything that looks like the
+ * environment (throttling, timeouts, network, database) is retryable; anything that says the
+ * input itself is bad (corrupt or encrypted document, unsupported image, missing object) is
+ * permanent. Unknown errors are retryable, which the attempt limit still bounds.
+ */
+@Component
+public class FailureClassifier {
+
+    public FileProcessingException classify(Throwable error) {
+        if (error instanceof FileProcessingException failure) return failure;
+
+        // A network error deep inside a parser exception still means the bytes never arrived, not that they are bad.
+        // Checked before the Tika types below; only IOExceptions the parser raised itself mean a corrupt document.
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (AdaptiveRateLimiter.isThrottle(t)) return retryable("throttled", error);
+            if (t instanceof TimeoutException) return retryable("timeout", error);
+            if (t instanceof SourceInputStream.ReadException || t instanceof SdkClientException
+                    || t instanceof SocketException || t instanceof SocketTimeoutException || t instanceof SSLException
+                    || isTransportError(t)) {
+                return retryable("network", error);
+            }
+        }
+
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof AwsServiceException ase) return classifyAws(ase, error);
+            if (t instanceof EncryptedDocumentException) return permanent("encrypted_document", error);
+            if (t instanceof ZeroByteFileException) return permanent("empty_document", error);
+            if (t instanceof UnsupportedFormatException) return permanent("unsupported_format", error);
+            if (t instanceof TikaException) return permanent("corrupt_document", error);
+            if (t instanceof DataAccessException) return retryable("database", error);
+            if (t instanceof IOException) return retryable("io", error);
+        }
+        return retryable("unexpected", error);
+    }
+
+    // HTTP client stream errors (ConnectionClosedException, TruncatedChunkException) are IOExceptions a parser may wrap
+    private static boolean isTransportError(Throwable t) {
+        if (!(t instanceof IOException)) return false;
+        String name = t.getClass().getName();
+        return name.startsWith("org.apache.http.") || name.startsWith("org.apache.hc.") || name.startsWith("software.amazon.");
+    }
+
+    private FileProcessingException classifyAws(AwsServiceException ase, Throwable error) {
+        int status = ase.statusCode();
+        String code = ase.awsErrorDetails() == null ? null : ase.awsErrorDetails().errorCode();
+
+        if (status == 429 || status >= 500 || status == 0) return retryable("aws_unavailable", error);
+        // Usually a policy or credentials change away from working; give it the retries before dead-lettering
+        if (status == 401 || status == 403) return retryable("access_denied", error);
+        if (status == 404) return permanent("object_not_found", error);
+        if ("InvalidImageFormatException".equals(code)) return permanent("unsupported_image", error);
+        if ("ImageTooLargeException".equals(code)) return permanent("image_too_large", error);
+        return permanent("rejected_input", error);
+    }
+
+    private static FileProcessingException retryable(String reason, Throwable error) {
+        return new FileProcessingException(FailureKind.RETRYABLE, reason, describe(error), error);
+    }
+
+    private static FileProcessingException permanent(String reason, Throwable error) {
+        return new FileProcessingException(FailureKind.PERMANENT, reason, describe(error), error);
+    }
+
+    // Outermost to root cause, e.g. "TikaException: Unable to extract PDF content <- IOException: Missing root object"
+    private static String describe(Throwable error) {
+        StringBuilder description = new StringBuilder();
+        for (Throwable t = error; t != null && description.length() < 2000; t = t.getCause()) {
+            if (!description.isEmpty()) description.append(" <- ");
+            description.append(t.getClass().getSimpleName());
+            if (t.getMessage() != null) description.append(": ").append(t.getMessage());
+            if (t.getCause() == t) break;
+        }
+        return description.length() > 2000 ? description.substring(0, 2000) : description.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.FileDto;
+import com.file.manager.enums.JobStatus;
+
+import java.util.List;
+
+/**
+ * One kind of file the pipeline knows how to analyze. Every bean implementing this is
+ * picked up by {@link FileHandlerRegistry}, so supporting a new type (DOCX, XLSX, audio)
+ * means adding a handler, not touching the schedulers.
+ */
+public interface FileHandler {
+
+    // Names the handler's executor threads, its worker.handlers.<name>.* settings and metric tags
+    String name();
+
+    // Exact types ("application/pdf"), whole families ("image/*"), or "*/*" as a catch-all
+    List<String> mimeTypes();
+
+    // Throws on failure; FileProcessor classifies the error as retryable or permanent
+    JobStatus handle(FileDto file) throws Exception;
+}
@@ -0,0 +1,174 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.FileDto;
+import com.file.manager.metrics.PipelineMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps MIME types to {@link FileHandler}s and runs each handler on its own bounded
+ * executor (a bulkhead): a backlog of slow PDFs fills the text pool and queue only,
+ * images keep flowing through theirs.
+ */
+@Slf4j
+@Component
+public class FileHandlerRegistry {
+
+    @Autowired
+    private List<FileHandler> handlers;
+    @Autowired
+    private Environment environment;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    // Defaults for handlers without their own worker.handlers.<name>.* settings.
+    // Work is almost entirely waiting on S3 / Rekognition / Bedrock, so size well above core count.
+    @Value("${worker.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 8}}")
+    private int defaultThreads;
+
+    @Value("${worker.queue-capacity:100}")
+    private int defaultQueueCapacity;
+
+    private final Map<String, FileHandler> exactTypes = new HashMap<>();
+    private final Map<String, FileHandler> typeFamilies = new HashMap<>();
+    private final Map<FileHandler, ThreadPoolExecutor> executors = new LinkedHashMap<>();
+    private FileHandler catchAll;
+
+    @PostConstruct
+    public void init() {
+        for (FileHandler handler : handlers) {
+            for (String pattern : handler.mimeTypes()) {
+                register(normalize(pattern), handler);
+            }
+
+            ThreadPoolExecutor executor = newExecutor(handler.name());
+            executors.put(handler, executor);
+
+            pipelineMetrics.gauge("pipeline.workers.active", executor, ThreadPoolExecutor::getActiveCount,
+                    "handler", handler.name());
+            pipelineMetrics.gauge("pipeline.workers.queued", executor, e -> e.getQueue().size(),
+                    "handler", handler.name());
+
+            log.info("File handler '{}' for {} with {} threads, queue {}", handler.name(), handler.mimeTypes(),
+                    executor.getMaximumPoolSize(), executor.getQueue().remainingCapacity());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    public Optional<FileHandler> resolve(String mimeType) {
+        if (mimeType == null || mimeType.isBlank()) return Optional.ofNullable(catchAll);
+
+        String type = normalize(mimeType);
+        FileHandler handler = exactTypes.get(type);
+        if (handler == null) {
+            int slash = type.indexOf('/');
+            handler = slash < 0 ? null : typeFamilies.get(type.substring(0, slash));
+        }
+        return Optional.ofNullable(handler != null ? handler : catchAll);
+    }
+
+    /**
+     * Runs the task on the executor of the handler for this file's type. Files nobody
+     * handles run inline: there is nothing to do for them but record the miss.
+     *
+     * @throws RejectedExecutionException when that handler's queue is full
+     */
+    public void submit(FileDto file, Runnable task) {
+        Optional<FileHandler> handler = resolve(file.getMimeType());
+        if (handler.isEmpty()) {
+            task.run();
+            return;
+        }
+        try {
+            executors.get(handler.get()).execute(task);
+        } catch (RejectedExecutionException e) {
+            pipelineMetrics.increment("pipeline.handler.rejected", "handler", handler.get().name());
+            throw e;
+        }
+    }
+
+    // True when the file's handler could start it right away; the fair scheduler holds files back otherwise
+    public boolean hasIdleWorker(FileDto file) {
+        Optional<FileHandler> handler = resolve(file.getMimeType());
+        if (handler.isEmpty()) return true;
+        ThreadPoolExecutor executor = executors.get(handler.get());
+        return executor.getActiveCount() + executor.getQueue().size() < executor.getMaximumPoolSize();
+    }
+
+    // Shutdown: takes the tasks still waiting in the handler queues, for the caller to return to its queue
+    public List<Runnable> drainQueued() {
+        List<Runnable> tasks = new ArrayList<>();
+        executors.values().forEach(executor -> executor.getQueue().drainTo(tasks));
+        return tasks;
+    }
+
+    // Threads plus queue slots over all handlers: the most files that can be accepted at once
+    public int totalCapacity() {
+        return executors.values().stream()
+                .mapToInt(e -> e.getMaximumPoolSize() + e.getQueue().remainingCapacity())
+                .sum();
+    }
+
+    private void register(String pattern, FileHandler handler) {
+        FileHandler previous;
+        if (pattern.equals("*/*")) {
+            previous = catchAll;
+            catchAll = handler;
+        } else if (pattern.endsWith("/*")) {
+            previous = typeFamilies.put(pattern.substring(0, pattern.length() - 2), handler);
+        } else {
+            previous = exactTypes.put(pattern, handler);
+        }
+        if (previous != null) {
+            throw new IllegalStateException("MIME type " + pattern + " is claimed by both '"
+                    + previous.name() + "' and '" + handler.name() + "'");
+        }
+    }
+
+    // Reads worker.handlers.<name>.threads / queue-capacity
+    private ThreadPoolExecutor newExecutor(String name) {
+        String prefix = "worker.handlers." + name + ".";
+        int threads = environment.getProperty(prefix + "threads", Integer.class, defaultThreads);
+        int queueCapacity = environment.getProperty(prefix + "queue-capacity", Integer.class, defaultQueueCapacity);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory(name + "-worker-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // "Application/PDF; charset=binary" -> "application/pdf"
+    private static String normalize(String mimeType) {
+        int parameters = mimeType.indexOf(';');
+        String type = parameters < 0 ? mimeType : mimeType.substring(0, parameters);
+        return type.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,22 @@
+package com.file.manager.services;
+
+import com.file.manager.enums.FailureKind;
+import lombok.Getter;
+
+/**
+ * A file that could not be processed, with whether trying again can help. The reason is a
+ * short, bounded code ("corrupt_document", "throttled", ...) used as a metric tag and
+ * stored with the dead letter; the details are in the message and cause.
+ */
+@Getter
+public class FileProcessingException extends RuntimeException {
+
+    private final FailureKind kind;
+    private final String reason;
+
+    public FileProcessingException(FailureKind kind, String reason, String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,52 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.FileDto;
+import com.file.manager.enums.FailureKind;
+import com.file.manager.enums.JobStatus;
+import com.file.manager.metrics.PipelineMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+@Slf4j
+@Service
+public class FileProcessor {
+
+    @Autowired
+    private FileHandlerRegistry handlerRegistry;
+
+    @Autowired
+    private FailureClassifier failureClassifier;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    // Throws FileProcessingException on failure, classified so the caller can retry or dead-letter
+    public JobStatus process(FileDto file) {
+        Optional<FileHandler> handler = handlerRegistry.resolve(file.getMimeType());
+        if (handler.isEmpty()) {
+            // Dead-lettered and FAILED on the job, so unprocessed files can be found and backfilled once a handler exists
+            log.error("No handler registered for file {} with type:{}; file was NOT processed",
+                    file.getId(), file.getMimeType());
+            pipelineMetrics.fallback("unsupported_type", file.getMimeType());
+            pipelineMetrics.fileProcessed(file.getMimeType(), JobStatus.FAILED.name());
+            throw new FileProcessingException(FailureKind.PERMANENT, "unsupported_type",
+                    "No handler for type " + file.getMimeType(), null);
+        }
+
+        try {
+            JobStatus status = pipelineMetrics.timeCallable(PipelineMetrics.FILE_TOTAL, () -> handler.get().handle(file));
+            pipelineMetrics.fileProcessed(file.getMimeType(), status.name());
+            return status;
+        } catch (Exception e) {
+            FileProcessingException failure = failureClassifier.classify(e);
+            log.error("Error while processing Fileid {} with type:{} ({}, {})",
+                    file.getId(), file.getMimeType(), failure.getKind(), failure.getReason(), e);
+            pipelineMetrics.fileProcessed(file.getMimeType(), JobStatus.FAILED.name());
+            pipelineMetrics.increment("files.failures", "kind", failure.getKind().name(), "reason", failure.getReason());
+            throw failure;
+        }
+    }
+}
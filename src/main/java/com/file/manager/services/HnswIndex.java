@@ -0,0 +1,480 @@
+package com.file.manager.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical navigable small world graph for cosine k-nearest-neighbour search over unit
+ * vectors. Vectors live in one float[] (node i at i * dimensions) and links in int arrays, so
+ * the index is a few large primitive arrays rather than an object per node.
+ *
+ * <p>Adding a key that is already present tombstones its old node: searches still route through
+ * tombstones but never return them, and {@link #liveCount()} against {@link #size()} tells when
+ * a rebuild is worth it. Writes take the write lock; searches share the read lock.
+ */
+public class HnswIndex {
+
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    private float[] vectors;
+    // node -> level -> [count, neighbour, neighbour, ...]
+    private int[][][] links;
+    private UUID[] keys;
+    private long[] versions;
+    private boolean[] deleted;
+    private final Map<UUID, Integer> nodeByKey = new HashMap<>();
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int dimensions, int m, int efConstruction, int initialCapacity) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+
+        int capacity = Math.max(16, initialCapacity);
+        this.vectors = new float[capacity * dimensions];
+        this.links = new int[capacity][][];
+        this.keys = new UUID[capacity];
+        this.versions = new long[capacity];
+        this.deleted = new boolean[capacity];
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Inserts or replaces the vector for a key. A version not newer than the stored one is
+     * ignored, so replaying rows the index has already seen is harmless.
+     *
+     * @return false when the stored version is the same or newer
+     */
+    public boolean add(UUID key, float[] vector, long version) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        float[] unit = normalize(vector);
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = nodeByKey.get(key);
+            if (previous != null) {
+                if (versions[previous] >= version) return false;
+                deleted[previous] = true;
+                deletedCount++;
+            }
+
+            int node = size;
+            ensureCapacity(node + 1);
+            System.arraycopy(unit, 0, vectors, node * dimensions, dimensions);
+            keys[node] = key;
+            versions[node] = version;
+            size++;
+            nodeByKey.put(key, node);
+
+            int level = randomLevel();
+            links[node] = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                links[node][l] = new int[1 + (l == 0 ? maxM0 : m)];
+            }
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return true;
+            }
+
+            int ep = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                ep = greedyClosest(unit, ep, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                long[] candidates = searchLayer(unit, ep, efConstruction, l);
+                for (int neighbour : selectNeighbours(node, candidates, m)) {
+                    link(node, neighbour, l);
+                    link(neighbour, node, l);
+                }
+                ep = nodeOf(candidates[0]);
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(UUID key) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeByKey.remove(key);
+            if (node == null) return false;
+            deleted[node] = true;
+            deletedCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<float[]> vector(UUID key) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeByKey.get(key);
+            if (node == null) return Optional.empty();
+            return Optional.of(Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The k live keys closest to the query, most similar first. A larger ef trades latency for recall.
+     *
+     * @param exclude key left out of the results (the query's own file), may be null
+     */
+    public List<Neighbour> search(float[] query, int k, int ef, UUID exclude) {
+        float[] unit = normalize(query);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) return List.of();
+
+            int ep = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                ep = greedyClosest(unit, ep, l);
+            }
+            long[] candidates = searchLayer(unit, ep, Math.max(ef, k + 1), 0);
+
+            List<Neighbour> results = new ArrayList<>(k);
+            for (long candidate : candidates) {
+                int node = nodeOf(candidate);
+                if (deleted[node] || keys[node].equals(exclude)) continue;
+                results.add(new Neighbour(keys[node], 1 - distanceOf(candidate)));
+                if (results.size() == k) break;
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A fresh graph over the live nodes only, same settings and versions
+    public HnswIndex rebuilt() {
+        lock.readLock().lock();
+        try {
+            HnswIndex copy = new HnswIndex(dimensions, m, efConstruction, size - deletedCount);
+            for (int node = 0; node < size; node++) {
+                if (!deleted[node]) {
+                    copy.add(keys[node], Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions), versions[node]);
+                }
+            }
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long version(UUID key) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeByKey.get(key);
+            return node == null ? Long.MIN_VALUE : versions[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Nodes including tombstones
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int liveCount() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Walk downhill one neighbour at a time; used on the upper, sparse levels
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float d = distance(query, neighbours[i]);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Best-first search on one level; returns up to ef (distance, node) pairs, closest first
+    private long[] searchLayer(float[] query, int start, int ef, int level) {
+        Visited seen = visited.get();
+        seen.reset(size);
+
+        LongHeap candidates = new LongHeap(ef * 2, false);
+        LongHeap results = new LongHeap(ef + 1, true);
+        long first = encode(distance(query, start), start);
+        seen.visit(start);
+        candidates.push(first);
+        results.push(first);
+
+        while (!candidates.isEmpty()) {
+            long candidate = candidates.pop();
+            if (results.size() >= ef && candidate > results.peek()) break;
+
+            int[] neighbours = links[nodeOf(candidate)][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (!seen.visit(neighbour)) continue;
+
+                long encoded = encode(distance(query, neighbour), neighbour);
+                if (results.size() < ef || encoded < results.peek()) {
+                    candidates.push(encoded);
+                    results.push(encoded);
+                    if (results.size() > ef) results.pop();
+                }
+            }
+        }
+        return results.sortedAscending();
+    }
+
+    // The paper's heuristic: keep a candidate only if it is closer to the node than to every neighbour
+    // already kept, which spreads links across directions instead of bunching them in one cluster
+    private int[] selectNeighbours(int node, long[] candidatesAscending, int max) {
+        int[] selected = new int[Math.min(max, candidatesAscending.length)];
+        int count = 0;
+        for (long candidate : candidatesAscending) {
+            if (count == selected.length) break;
+            int c = nodeOf(candidate);
+            if (c == node) continue;
+
+            float toNode = distanceOf(candidate);
+            boolean keep = true;
+            for (int i = 0; i < count && keep; i++) {
+                keep = distanceBetween(c, selected[i]) > toNode;
+            }
+            if (keep) selected[count++] = c;
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private void link(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int count = neighbours[0];
+        int capacity = neighbours.length - 1;
+        if (count < capacity) {
+            neighbours[1 + count] = to;
+            neighbours[0] = count + 1;
+            return;
+        }
+
+        // Full: re-select among the existing links plus the new one
+        long[] candidates = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = encode(distanceBetween(from, neighbours[1 + i]), neighbours[1 + i]);
+        }
+        candidates[count] = encode(distanceBetween(from, to), to);
+        Arrays.sort(candidates);
+
+        int[] kept = selectNeighbours(from, candidates, capacity);
+        System.arraycopy(kept, 0, neighbours, 1, kept.length);
+        neighbours[0] = kept.length;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= keys.length) return;
+        int capacity = Math.max(required, keys.length + (keys.length >> 1));
+        vectors = Arrays.copyOf(vectors, capacity * dimensions);
+        links = Arrays.copyOf(links, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+    }
+
+    // Cosine distance of unit vectors
+    private float distance(float[] query, int node) {
+        return 1 - dot(query, 0, vectors, node * dimensions, dimensions);
+    }
+
+    private float distanceBetween(int a, int b) {
+        return 1 - dot(vectors, a * dimensions, vectors, b * dimensions, dimensions);
+    }
+
+    // Four independent sums so the loop is not one long chain of dependent float adds
+    private static float dot(float[] a, int offsetA, float[] b, int offsetB, int length) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += a[offsetA + i] * b[offsetB + i];
+            s1 += a[offsetA + i + 1] * b[offsetB + i + 1];
+            s2 += a[offsetA + i + 2] * b[offsetB + i + 2];
+            s3 += a[offsetA + i + 3] * b[offsetB + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[offsetA + i] * b[offsetB + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] unit = new float[vector.length];
+        if (norm == 0) return unit;
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    // (distance, node) packed so that comparing the longs compares distances; distances are clamped
+    // to >= 0, where float bits sort like the floats themselves
+    private static long encode(float distance, int node) {
+        return ((long) Float.floatToIntBits(Math.max(0f, distance)) << 32) | (node & 0xffffffffL);
+    }
+
+    private static int nodeOf(long encoded) {
+        return (int) encoded;
+    }
+
+    private static float distanceOf(long encoded) {
+        return Float.intBitsToFloat((int) (encoded >>> 32));
+    }
+
+    public record Neighbour(UUID key, float score) {
+    }
+
+    // Per-thread visited marks; bumping the epoch clears them without touching the array
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int epoch;
+
+        void reset(int nodes) {
+            if (marks.length < nodes) {
+                marks = new int[Math.max(nodes, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == 0) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        boolean visit(int node) {
+            if (marks[node] == epoch) return false;
+            marks[node] = epoch;
+            return true;
+        }
+    }
+
+    private static final class LongHeap {
+        private long[] heap;
+        private int size;
+        private final boolean max;
+
+        LongHeap(int capacity, boolean max) {
+            this.heap = new long[Math.max(4, capacity)];
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peek() {
+            return heap[0];
+        }
+
+        void push(long value) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            int i = size++;
+            heap[i] = value;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!above(heap[i], heap[parent])) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        long pop() {
+            long top = heap[0];
+            heap[0] = heap[--size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) break;
+                int child = left + 1 < size && above(heap[left + 1], heap[left]) ? left + 1 : left;
+                if (!above(heap[child], heap[i])) break;
+                swap(i, child);
+                i = child;
+            }
+            return top;
+        }
+
+        long[] sortedAscending() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private boolean above(long a, long b) {
+            return max ? a > b : a < b;
+        }
+
+        private void swap(int i, int j) {
+            long t = heap[i];
+            heap[i] = heap[j];
+            heap[j] = t;
+        }
+    }
+}
@@ -2,187 +2,224 @@ package com.file.manager.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.file.manager.dto.FileDto;
+import com.file.manager.dto.ScanResult;
 import com.file.manager.enums.JobStatus;
+import com.file.manager.enums.PromptType;
+import com.file.manager.metrics.PipelineMetrics;
 import com.file.manager.models.Metadata;
-import com.file.manager.repositories.MetadataRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
-import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
 import software.amazon.awssdk.services.rekognition.model.*;
 
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
-public class ImageFileService {
+public class ImageFileService implements FileHandler {
 
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
-    @Value("${aws.bedrock.model-id}")
-    private String bedrockModelId;   // configurable
+
+    @Value("${aws.rekognition.timeout-seconds:30}")
+    private long timeoutSeconds;   // per-file deadline for all calls
 
     private final int wordLimit = 20;
     @Autowired
-    private RekognitionClient rekognitionClient;
+    private RekognitionAsyncClient rekognitionAsyncClient;
     @Autowired
     private ObjectMapper objectMapper;
 
     @Autowired
-    private MetadataRepository metadataRepository;
+    private MetadataWriter metadataWriter;
+    @Autowired
+    private EmbeddingService embeddingService;
+    @Autowired
+    private BedrockRuntimeAsyncClient bedrockRuntimeAsyncClient;
+    @Autowired
+    private ModelRouter modelRouter;
+    @Autowired
+    @Qualifier("rekognitionLimiter")
+    private AdaptiveRateLimiter rekognitionLimiter;
+    @Autowired
+    @Qualifier("bedrockLimiter")
+    private AdaptiveRateLimiter bedrockLimiter;
+    @Autowired
+    private AnalysisCacheService analysisCacheService;
     @Autowired
-    private BedrockRuntimeClient bedrockRuntimeClient;
+    private PipelineMetrics pipelineMetrics;
+    @Autowired
+    private ConfidentialScanner confidentialScanner;
 
-    public JobStatus handleImageFile(FileDto file) {
-        try {
-            String key = file.getS3Key();
-            S3Object s3Object = S3Object.builder()
-                    .bucket(bucketName)
-                    .name(key)
-                    .build();
+    @Override
+    public String name() {
+        return "image";
+    }
 
-            Image myImage = Image.builder()
-                    .s3Object(s3Object)
-                    .build();
+    @Override
+    public List<String> mimeTypes() {
+        return List.of("image/*");
+    }
 
-            // Detect labels
-            List<String> aiTags = detectLabels(myImage);
+    @Override
+    public JobStatus handle(FileDto file) throws Exception {
+        String key = file.getS3Key();
+
+        // Same bytes already analyzed under another file id
+        String cacheKey = analysisCacheService.cacheKey("image", key);
+        Optional<Metadata> cached = analysisCacheService.lookup(cacheKey, file.getId());
+        if (cached.isPresent()) {
+            // Entries cached before embeddings existed get one now
+            embeddingService.attach(cached.get());
+            pipelineMetrics.time(PipelineMetrics.METADATA_SAVE, () -> metadataWriter.write(cached.get()).join());
+            return JobStatus.COMPLETED;
+        }
 
-            // Detect unsafe content
-            boolean sensitive = detectModeration(myImage);
+        S3Object s3Object = S3Object.builder()
+                .bucket(bucketName)
+                .name(key)
+                .build();
 
-            // Detect text + check if confidential
-            String extractedText = detectText(myImage);
-            String extractSummary = null;
-            boolean confidential = false;
+        Image myImage = Image.builder()
+                .s3Object(s3Object)
+                .build();
 
-            if (!extractedText.isEmpty()) {
-                confidential = checkConfidential(extractedText);
+        AtomicBoolean degraded = new AtomicBoolean();
+        Calls calls = new Calls();
 
-                // Summarize using Bedrock
-                extractSummary = getSummarization(extractedText, wordLimit);
-            }else{
+        // Labels, moderation and OCR are independent, so fire them together
+        CompletableFuture<List<String>> labelsFuture = detectLabels(myImage, calls);
+        CompletableFuture<Boolean> sensitiveFuture = detectModeration(myImage, calls);
+        CompletableFuture<String> textFuture = detectText(myImage, calls);
 
-            extractSummary = getSummarization(aiTags.toString(),wordLimit);
+        // Summarize as soon as OCR is back; only wait on labels when there is no text
+        CompletableFuture<String> summaryFuture = textFuture.thenCompose(extractedText -> {
+            if (!extractedText.isEmpty()) {
+                return getSummarization(extractedText, wordLimit, file.getMimeType(), degraded, calls);
             }
-            Metadata metadata = Metadata.builder()
-                    .id(UUID.randomUUID())
-                    .fileId(file.getId())
-                    .aiTag(aiTags)
-                    .summary(extractSummary)
-                    .sensitiveFlag(sensitive)
-                    .confidentialFlag(confidential)
-                    .createdAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
-                    .build();
-
-            metadataRepository.save(metadata);
-            return JobStatus.COMPLETED;
+            return labelsFuture.thenCompose(aiTags -> getSummarization(aiTags.toString(), wordLimit, file.getMimeType(), degraded, calls));
+        });
 
-        } catch (Exception e) {
-            log.error("Error while processing Fileid {} with type:{} Got error: {}",file.getId(),file.getMimeType(),e.getMessage());
-            return JobStatus.FAILED;
+        CompletableFuture<ScanResult> scanFuture = textFuture.thenApply(extractedText -> {
+            if (calls.isCancelled()) throw new CancellationException("Image analysis deadline passed");
+            return confidentialScanner.scan(extractedText);
+        });
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(labelsFuture, sensitiveFuture, summaryFuture, scanFuture);
+        try {
+            all.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // Abort the SDK requests still running and keep the later stages (summary, scan) from starting
+            calls.cancelAll();
+            labelsFuture.cancel(true);
+            sensitiveFuture.cancel(true);
+            textFuture.cancel(true);
+            summaryFuture.cancel(true);
+            scanFuture.cancel(true);
+            throw new TimeoutException("Image analysis exceeded " + timeoutSeconds + "s deadline");
         }
+
+        List<String> aiTags = labelsFuture.join();
+        ScanResult scan = scanFuture.join();
+        // Moderation covers what the picture shows, the scanner covers what the OCR'd text says
+        boolean sensitive = sensitiveFuture.join() || scan.isSensitive();
+        boolean confidential = scan.isConfidential();
+        String extractSummary = summaryFuture.join();
+
+        Metadata metadata = Metadata.builder()
+                .id(UUID.randomUUID())
+                .fileId(file.getId())
+                .aiTag(aiTags)
+                .summary(extractSummary)
+                .sensitiveFlag(sensitive)
+                .confidentialFlag(confidential)
+                .degraded(degraded.get())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        embeddingService.attach(metadata);
+
+        // Returns once the row is committed, so the caller may delete the message
+        pipelineMetrics.time(PipelineMetrics.METADATA_SAVE, () -> metadataWriter.write(metadata).join());
+        analysisCacheService.store(cacheKey, metadata);
+        return JobStatus.COMPLETED;
     }
 
     // 🔹 Detect Labels
-    private List<String> detectLabels(Image myImage) {
+    private CompletableFuture<List<String>> detectLabels(Image myImage, Calls calls) {
         DetectLabelsRequest request = DetectLabelsRequest.builder()
                 .image(myImage)
                 .maxLabels(10)
                 .build();
 
-        DetectLabelsResponse response = rekognitionClient.detectLabels(request);
-
-        List<Label> labels = response.labels();
-
-
-
-        return labels.stream()
-                .filter(label -> label.confidence() >= 95.0f)
-                .map(Label::name)
-                .toList();
+        return pipelineMetrics.timeAsync(PipelineMetrics.REKOGNITION_LABELS,
+                        () -> calls.add(rekognitionLimiter.submit(() -> rekognitionAsyncClient.detectLabels(request))))
+                .thenApply(response -> response.labels().stream()
+                        .filter(label -> label.confidence() >= 95.0f)
+                        .map(Label::name)
+                        .toList());
     }
 
     // 🔹 Detect Unsafe Content
-    private boolean detectModeration(Image myImage) {
+    private CompletableFuture<Boolean> detectModeration(Image myImage, Calls calls) {
         DetectModerationLabelsRequest request = DetectModerationLabelsRequest.builder()
                 .image(myImage)
                 .minConfidence(90F)
                 .build();
 
-        DetectModerationLabelsResponse response = rekognitionClient.detectModerationLabels(request);
-
-        List<ModerationLabel> moderationLabels = response.moderationLabels();
-
-
-        return moderationLabels.stream()
-                .anyMatch(label -> label.confidence() >= 90.0f);
+        return pipelineMetrics.timeAsync(PipelineMetrics.REKOGNITION_MODERATION,
+                        () -> calls.add(rekognitionLimiter.submit(() -> rekognitionAsyncClient.detectModerationLabels(request))))
+                .thenApply(response -> response.moderationLabels().stream()
+                        .anyMatch(label -> label.confidence() >= 90.0f));
     }
 
     // 🔹 Detect Text (OCR)
-    private String detectText(Image myImage) {
+    private CompletableFuture<String> detectText(Image myImage, Calls calls) {
         DetectTextRequest request = DetectTextRequest.builder()
                 .image(myImage)
                 .build();
 
-        DetectTextResponse response = rekognitionClient.detectText(request);
+        return pipelineMetrics.timeAsync(PipelineMetrics.REKOGNITION_TEXT,
+                        () -> calls.add(rekognitionLimiter.submit(() -> rekognitionAsyncClient.detectText(request))))
+                .thenApply(response -> {
+                    StringBuilder extracted = new StringBuilder();
 
-        StringBuilder extracted = new StringBuilder();
+                    for (TextDetection text : response.textDetections()) {
+                        if ("LINE".equals(text.typeAsString())) {
+                            extracted.append(text.detectedText()).append(" ");
+                        }
+                    }
 
-        for (TextDetection text : response.textDetections()) {
-            if ("LINE".equals(text.typeAsString())) {
-                extracted.append(text.detectedText()).append(" ");
-            }
-        }
-
-        return extracted.toString().trim();
+                    return extracted.toString().trim();
+                });
     }
 
-    // 🔹 Check if text looks confidential
-    private boolean checkConfidential(String text) {
-        if (text == null || text.isBlank()) return false;
-
-        String lower = text.toLowerCase();
-
-        // 🔹 Keyword checks
-        if (lower.contains("invoice") ||
-                lower.contains("confidential") ||
-                lower.contains("passport") ||
-                lower.contains("driver license") ||
-                lower.contains("ssn") ||
-                lower.contains("id") ||
-                lower.contains("credit") ||
-                lower.contains("debit") ||
-                lower.contains("bank") ||
-                lower.contains("form") ||
-                lower.contains("aadhaar")) {
-            return true;
+    // Any fallback answer sets degraded, which keeps the result out of the analysis cache
+    private CompletableFuture<String> getSummarization(String inputText, int wordLimit, String mimeType, AtomicBoolean degraded,
+                                                       Calls calls) {
+        // OCR came back after the deadline; the file has already failed
+        if (calls.isCancelled()) {
+            return CompletableFuture.failedFuture(new CancellationException("Image analysis deadline passed"));
         }
-
-        // 🔹 Regex checks
-        // Credit card (16 digits with optional spaces/dashes)
-        if (text.matches(".*(?:\\d[ -]?){13,16}.*")) return true;
-
-        // API key-like tokens (long alphanumeric strings)
-        if (text.matches(".*[A-Za-z0-9_-]{20,}.*")) return true;
-
-        // Date of birth / sensitive dates (dd/mm/yyyy or mm/dd/yyyy)
-        if (text.matches(".*\\b\\d{2}[/-]\\d{2}[/-]\\d{2,4}\\b.*")) return true;
-
-        return false;
-    }
-
-    private String getSummarization(String inputText, int wordLimit) {
         try {
             String prompt = String.format(
                     "Write a concise description in one single line of maximum %d words. " +
@@ -191,42 +228,61 @@ public class ImageFileService {
                     wordLimit, inputText
             );
 
+            InvokeModelRequest request = modelRouter.request(PromptType.IMAGE_SUMMARY, prompt);
+
+            return pipelineMetrics.timeAsync(PipelineMetrics.bedrock(PromptType.IMAGE_SUMMARY.key()),
+                            () -> calls.add(bedrockLimiter.submit(() -> bedrockRuntimeAsyncClient.invokeModel(request))))
+                    .thenApply(response -> {
+                        try {
+                            Map<String, Object> json = objectMapper.readValue(response.body().asUtf8String(), Map.class);
+                            String outputText = ((List<Map<String, String>>) json.get("results"))
+                                    .get(0).get("outputText");
+
+                            return outputText.trim();
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    })
+                    .exceptionally(e -> {
+                        // A throttled call must fail the file rather than store a degraded summary
+                        if (AdaptiveRateLimiter.isThrottle(e) || calls.isCancelled()) throw new CompletionException(e);
+                        return summarizationFallback(inputText, mimeType, e, degraded);
+                    });
 
-            Map<String, Object> body = Map.of(
-                    "inputText", prompt,
-                    "textGenerationConfig", Map.of(
-                            "maxTokenCount", 200,
-                            "temperature", 0.7,
-                            "topP", 0.9
-                    )
-            );
-
-            String requestBody = objectMapper.writeValueAsString(body);
-
-            InvokeModelRequest request = InvokeModelRequest.builder()
-                    .modelId(bedrockModelId)
-                    .accept("application/json")
-                    .contentType("application/json")
-                    .body(SdkBytes.fromString(requestBody, StandardCharsets.UTF_8))
-                    .build();
-
-            InvokeModelResponse response = bedrockRuntimeClient.invokeModel(request);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(summarizationFallback(inputText, mimeType, e, degraded));
+        }
+    }
 
-            String responseBody = response.body().asUtf8String();
+    private String summarizationFallback(String inputText, String mimeType, Throwable e, AtomicBoolean degraded) {
+        log.error("Summarization failed, fallback to partial OCR", e);
+        degraded.set(true);
+        pipelineMetrics.fallback("summary_ocr", mimeType);
+        // fallback: return first 20 words of OCR
+        return inputText.split("\\s+").length > 20 ?
+                String.join(" ", List.of(inputText.split("\\s+")).subList(0, 20)) + "..." :
+                inputText;
+    }
 
-            Map<String, Object> json = objectMapper.readValue(responseBody, Map.class);
-            String outputText = ((List<Map<String, String>>) json.get("results"))
-                    .get(0).get("outputText");
+    // The limiter futures of one file's SDK calls; cancelling one aborts its request
+    private static final class Calls {
+        private final Queue<CompletableFuture<?>> futures = new ConcurrentLinkedQueue<>();
+        private volatile boolean cancelled;
 
-            return outputText.trim();
+        <T> CompletableFuture<T> add(CompletableFuture<T> call) {
+            futures.add(call);
+            // Started while the deadline was being handled
+            if (cancelled) call.cancel(true);
+            return call;
+        }
 
-        } catch (Exception e) {
-            log.error("Summarization failed, fallback to partial OCR. Error: {}", e.getMessage());
-            // fallback: return first 20 words of OCR
-            return inputText.split("\\s+").length > 20 ?
-                    String.join(" ", List.of(inputText.split("\\s+")).subList(0, 20)) + "..." :
-                    inputText;
+        boolean isCancelled() {
+            return cancelled;
         }
-    }
 
+        void cancelAll() {
+            cancelled = true;
+            futures.forEach(call -> call.cancel(true));
+        }
     }
+}
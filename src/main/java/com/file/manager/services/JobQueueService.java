@@ -0,0 +1,258 @@
+package com.file.manager.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.manager.dto.FileDto;
+import com.file.manager.enums.FileType;
+import com.file.manager.enums.JobStatus;
+import com.file.manager.models.Job;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * details.job as a durable work queue. Jobs are claimed in batches with
+ * {@code FOR UPDATE SKIP LOCKED}, so any number of nodes can pull from it without
+ * blocking each other, and a claim is a lease: if the node dies the job becomes
+ * claimable again once the lease expires.
+ */
+@Slf4j
+@Service
+public class JobQueueService {
+
+    private static final String INSERT_JOB = """
+            INSERT INTO details.job
+                (id, file_id, file_type, job_status, payload, lease_owner, lease_expires_at, attempts, created_at, updated_at)
+            VALUES (?, ?, ?, 'PENDING', ?, NULL, NULL, 0, now(), now())
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final String TRACK_JOB = """
+            INSERT INTO details.job
+                (id, file_id, file_type, job_status, payload, lease_owner, lease_expires_at, attempts, created_at, updated_at)
+            VALUES (?, ?, ?, 'IN_PROGRESS', ?, ?, now() + ? * interval '1 second', 1, now(), now())
+            ON CONFLICT (id) DO UPDATE SET
+                job_status = 'IN_PROGRESS',
+                lease_owner = EXCLUDED.lease_owner,
+                lease_expires_at = EXCLUDED.lease_expires_at,
+                attempts = COALESCE(details.job.attempts, 0) + 1,
+                updated_at = now()
+            """;
+
+    private static final String CLAIM_JOBS = """
+            UPDATE details.job SET
+                job_status = 'IN_PROGRESS',
+                lease_owner = ?,
+                lease_expires_at = now() + ? * interval '1 second',
+                attempts = COALESCE(attempts, 0) + 1,
+                updated_at = now()
+            WHERE id IN (
+                SELECT id FROM details.job
+                WHERE (job_status = 'PENDING'
+                       OR (job_status = 'IN_PROGRESS' AND lease_expires_at < now()))
+                  AND COALESCE(attempts, 0) < ?
+                ORDER BY created_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """;
+
+    private static final String RENEW_LEASE = """
+            UPDATE details.job SET lease_expires_at = now() + ? * interval '1 second'
+            WHERE id = ? AND lease_owner = ? AND job_status = 'IN_PROGRESS'
+            """;
+
+    // Back to claimable after a delay: an expired lease on an IN_PROGRESS job, with the attempt refunded
+    private static final String RELEASE = """
+            UPDATE details.job SET
+                lease_owner = NULL,
+                lease_expires_at = now() + ? * interval '1 second',
+                attempts = GREATEST(COALESCE(attempts, 0) - 1, 0),
+                updated_at = now()
+            WHERE id = ? AND lease_owner = ? AND job_status = 'IN_PROGRESS'
+            """;
+
+    // Failed attempt to be retried: claimable again once the backoff runs out, the attempt stays charged
+    private static final String RETRY = """
+            UPDATE details.job SET
+                lease_owner = NULL,
+                lease_expires_at = now() + ? * interval '1 second',
+                updated_at = now()
+            WHERE id = ? AND lease_owner = ? AND job_status = 'IN_PROGRESS'
+            """;
+
+    // Only while this node still holds the job: once the sweep has failed it or another node has claimed it, that outcome stands
+    private static final String TRANSITION = """
+            UPDATE details.job SET job_status = ?, lease_owner = NULL, lease_expires_at = NULL, updated_at = now()
+            WHERE id = ? AND lease_owner = ? AND job_status = 'IN_PROGRESS'
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private DeadLetterService deadLetterService;
+
+    @Value("${jobs.node-id:#{null}}")
+    private String configuredNodeId;
+
+    @Value("${jobs.lease-seconds:300}")
+    private int leaseSeconds;
+
+    @Value("${jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    // Final statuses waiting for the next batched flush
+    private final Map<UUID, JobStatus> pendingTransitions = new ConcurrentHashMap<>();
+
+    private final RowMapper<Job> jobRowMapper = (rs, rowNum) -> Job.builder()
+            .id(rs.getObject("id", UUID.class))
+            .fileId(rs.getObject("file_id", UUID.class))
+            .fileType(FileType.valueOf(rs.getString("file_type")))
+            .jobStatus(JobStatus.valueOf(rs.getString("job_status")))
+            .payload(rs.getString("payload"))
+            .leaseOwner(rs.getString("lease_owner"))
+            .leaseExpiresAt(toLocalDateTime(rs.getTimestamp("lease_expires_at")))
+            .attempts(rs.getInt("attempts"))
+            .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+            .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+            .build();
+
+    public static UUID jobIdForMessage(String messageId) {
+        return UUID.nameUUIDFromBytes(messageId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String nodeId() {
+        return configuredNodeId != null && !configuredNodeId.isBlank()
+                ? configuredNodeId
+                : ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    // QUEUE mode: durably record received files as PENDING; redelivered messages are ignored
+    public void enqueue(Map<String, FileDto> filesByMessageId) {
+        if (filesByMessageId.isEmpty()) return;
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, FileDto> entry : filesByMessageId.entrySet()) {
+            FileDto file = entry.getValue();
+            rows.add(new Object[]{
+                    jobIdForMessage(entry.getKey()), file.getId(), FileType.fromMimeType(file.getMimeType()).name(),
+                    toJson(file)
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_JOB, rows);
+    }
+
+    // DIRECT mode: the file is processed straight from SQS, the job row only records it.
+    // The lease is renewed with the message's visibility heartbeat, see SqsMessageAcknowledger.
+    public void track(Map<String, FileDto> filesByMessageId) {
+        if (filesByMessageId.isEmpty()) return;
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, FileDto> entry : filesByMessageId.entrySet()) {
+            FileDto file = entry.getValue();
+            rows.add(new Object[]{
+                    jobIdForMessage(entry.getKey()), file.getId(), FileType.fromMimeType(file.getMimeType()).name(),
+                    toJson(file), nodeId(), leaseSeconds
+            });
+        }
+        jdbcTemplate.batchUpdate(TRACK_JOB, rows);
+    }
+
+    public List<Job> claim(int limit) {
+        if (limit <= 0) return List.of();
+        return jdbcTemplate.query(CLAIM_JOBS, jobRowMapper, nodeId(), leaseSeconds, maxAttempts, limit);
+    }
+
+    public void renewLeases(Collection<UUID> jobIds) {
+        if (jobIds.isEmpty()) return;
+
+        String owner = nodeId();
+        List<Object[]> rows = jobIds.stream()
+                .map(id -> new Object[]{leaseSeconds, id, owner})
+                .toList();
+        jdbcTemplate.batchUpdate(RENEW_LEASE, rows);
+    }
+
+    public void release(UUID jobId, int delaySeconds) {
+        jdbcTemplate.update(RELEASE, delaySeconds, jobId, nodeId());
+    }
+
+    public void release(Collection<UUID> jobIds, int delaySeconds) {
+        if (jobIds.isEmpty()) return;
+
+        String owner = nodeId();
+        List<Object[]> rows = jobIds.stream()
+                .map(id -> new Object[]{delaySeconds, id, owner})
+                .toList();
+        jdbcTemplate.batchUpdate(RELEASE, rows);
+    }
+
+    public void retry(UUID jobId, int delaySeconds) {
+        jdbcTemplate.update(RETRY, delaySeconds, jobId, nodeId());
+    }
+
+    public void complete(UUID jobId, JobStatus status) {
+        pendingTransitions.put(jobId, status);
+    }
+
+    public FileDto readPayload(Job job) throws JsonProcessingException {
+        return objectMapper.readValue(job.getPayload(), FileDto.class);
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.flush-interval-ms:1000}")
+    public void flushTransitions() {
+        if (pendingTransitions.isEmpty()) return;
+
+        String owner = nodeId();
+        List<Object[]> rows = new ArrayList<>();
+        for (UUID jobId : List.copyOf(pendingTransitions.keySet())) {
+            JobStatus status = pendingTransitions.remove(jobId);
+            if (status != null) rows.add(new Object[]{status.name(), jobId, owner});
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(TRANSITION, rows);
+        } catch (Exception e) {
+            log.error("Failed to flush {} job status transitions", rows.size(), e);
+            rows.forEach(r -> pendingTransitions.putIfAbsent((UUID) r[1], JobStatus.valueOf((String) r[0])));
+        }
+    }
+
+    // Jobs whose lease ran out on their last allowed attempt will never be claimed again; they get a dead_letter row too
+    @Scheduled(fixedDelayString = "${jobs.sweep-interval-ms:60000}")
+    public void failExhausted() {
+        int failed = deadLetterService.recordExhausted(maxAttempts);
+        if (failed > 0) {
+            log.warn("Marked {} jobs FAILED and dead-lettered them after {} attempts", failed, maxAttempts);
+        }
+    }
+
+    private String toJson(FileDto file) {
+        try {
+            return objectMapper.writeValueAsString(file);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize file " + file.getId(), e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,123 @@
+package com.file.manager.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes for the metadata read path that JPA cannot declare: GIN on the ai_tags array,
+ * partial indexes on the flags and GIN on the near-duplicate LSH bands. Also makes file_id
+ * unique, first removing the duplicate rows written before MetadataWriter replaced by file id
+ * (the newest row per file is kept); an INVALID index left by an interrupted build is dropped
+ * and rebuilt. Everything is built CONCURRENTLY so writers are not blocked.
+ * The ai_tags column itself is added at startup, after Hibernate's schema update and before
+ * anything is written, since no entity maps it.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class MetadataIndexInitializer {
+
+    private static final String TAG_ARRAY_COLUMN_EXISTS = """
+            SELECT count(*) FROM information_schema.columns
+            WHERE table_schema = 'filesystem' AND table_name = 'metadata' AND column_name = 'ai_tags'
+            """;
+
+    private static final String ADD_TAG_ARRAY_COLUMN =
+            "ALTER TABLE filesystem.metadata ADD COLUMN IF NOT EXISTS ai_tags text[]";
+
+    private static final String REMOVE_DUPLICATES = """
+            WITH duplicate AS (
+                SELECT id FROM (
+                    SELECT id, row_number() OVER (PARTITION BY file_id ORDER BY updated_at DESC, id) AS rn
+                    FROM filesystem.metadata
+                ) ranked
+                WHERE rn > 1
+            ), tags AS (
+                DELETE FROM filesystem.metadata_ai_tag WHERE metadata_id IN (SELECT id FROM duplicate)
+            )
+            DELETE FROM filesystem.metadata WHERE id IN (SELECT id FROM duplicate)
+            """;
+
+    // No row: missing. false: INVALID, i.e. a CONCURRENTLY build failed or is still running
+    private static final String UNIQUE_INDEX_VALID = """
+            SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass('filesystem.uk_metadata_file_id')
+            """;
+
+    private static final String UNIQUE_INDEX_BUILDING = """
+            SELECT count(*) FROM pg_stat_progress_create_index
+            WHERE index_relid = to_regclass('filesystem.uk_metadata_file_id')
+            """;
+
+    private static final String DROP_UNIQUE_INDEX = "DROP INDEX CONCURRENTLY IF EXISTS filesystem.uk_metadata_file_id";
+
+    private static final String CREATE_UNIQUE_INDEX =
+            "CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_metadata_file_id ON filesystem.metadata (file_id)";
+
+    private static final String[] INDEXES = {
+            "DROP INDEX CONCURRENTLY IF EXISTS filesystem.idx_metadata_file_id",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_metadata_ai_tags ON filesystem.metadata USING GIN (ai_tags)",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_metadata_sensitive ON filesystem.metadata (file_id) WHERE sensitive_flag",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_metadata_confidential ON filesystem.metadata (file_id) WHERE confidential_flag",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_document_signature_bands ON filesystem.document_signature USING GIN (bands)"
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${metadata.create-indexes:true}")
+    private boolean enabled;
+
+    // Checked first: the ALTER takes an exclusive lock on metadata even when the column is already there
+    @PostConstruct
+    public void addColumns() {
+        Integer present = jdbcTemplate.queryForObject(TAG_ARRAY_COLUMN_EXISTS, Integer.class);
+        if (present == null || present == 0) {
+            jdbcTemplate.execute(ADD_TAG_ARRAY_COLUMN);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        if (!enabled) return;
+
+        try {
+            createUniqueFileIdIndex();
+        } catch (Exception e) {
+            log.error("Could not make metadata file_id unique", e);
+        }
+
+        // Another node may be building the same index; a failure here only means a slower query path
+        for (String ddl : INDEXES) {
+            try {
+                jdbcTemplate.execute(ddl);
+            } catch (Exception e) {
+                log.warn("Index statement failed: {}", ddl, e);
+            }
+        }
+    }
+
+    private void createUniqueFileIdIndex() {
+        Boolean valid = jdbcTemplate.query(UNIQUE_INDEX_VALID, rs -> rs.next() ? rs.getBoolean(1) : null);
+        if (Boolean.TRUE.equals(valid)) return;
+
+        if (valid != null) {
+            // Another node is building it right now; leave it to that node
+            Integer building = jdbcTemplate.queryForObject(UNIQUE_INDEX_BUILDING, Integer.class);
+            if (building != null && building > 0) return;
+
+            log.warn("Dropping INVALID index uk_metadata_file_id left by an interrupted build");
+            jdbcTemplate.execute(DROP_UNIQUE_INDEX);
+        }
+
+        int removed = jdbcTemplate.update(REMOVE_DUPLICATES);
+        if (removed > 0) log.info("Removed {} duplicate metadata rows before indexing file_id", removed);
+        jdbcTemplate.execute(CREATE_UNIQUE_INDEX);
+    }
+}
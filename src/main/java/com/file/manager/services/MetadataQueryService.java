@@ -0,0 +1,207 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.CursorPage;
+import com.file.manager.dto.MetadataQuery;
+import com.file.manager.dto.MetadataResponse;
+import com.file.manager.dto.MetadataWrittenEvent;
+import com.file.manager.enums.TagStorage;
+import com.file.manager.metrics.PipelineMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Read side of filesystem.metadata. Lookups by file id go through an in-process cache that
+ * MetadataWriter invalidates on every commit; searches page by file id (the unique index)
+ * with an opaque cursor, so deep pages cost the same as the first one.
+ */
+@Slf4j
+@Service
+public class MetadataQueryService {
+
+    private static final String SELECT_METADATA = """
+            SELECT m.id, m.file_id, f.owner_id, m.summary, m.sensitive_flag, m.confidential_flag,
+                   m.created_at, m.updated_at, m.ai_tags
+            FROM filesystem.metadata m
+            LEFT JOIN filesystem.file f ON f.id = m.file_id
+            WHERE 1 = 1
+            """;
+
+    private static final String SELECT_TAGS = """
+            SELECT metadata_id, ai_tag FROM filesystem.metadata_ai_tag WHERE metadata_id = ANY(?)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${metadata.tag-storage:COLLECTION}")
+    private TagStorage tagStorage;
+
+    @Value("${metadata.query.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${metadata.query.max-page-size:200}")
+    private int maxPageSize;
+
+    private final Cache<UUID, MetadataResponse> cache;
+
+    private final RowMapper<Row> rowMapper = (rs, rowNum) -> {
+        Array tags = rs.getArray("ai_tags");
+        return new Row(
+                rs.getObject("id", UUID.class),
+                MetadataResponse.builder()
+                        .fileId(rs.getObject("file_id", UUID.class))
+                        .ownerId(rs.getObject("owner_id", UUID.class))
+                        .tags(tags == null ? null : Arrays.asList((String[]) tags.getArray()))
+                        .summary(rs.getString("summary"))
+                        .sensitiveFlag(rs.getBoolean("sensitive_flag"))
+                        .confidentialFlag(rs.getBoolean("confidential_flag"))
+                        .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                        .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                        .build());
+    };
+
+    // Other nodes' writes are not seen by this node's invalidation, so entries also expire
+    public MetadataQueryService(@Value("${metadata.cache.max-entries:10000}") long maxEntries,
+                                @Value("${metadata.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public Optional<MetadataResponse> findByFileId(UUID fileId) {
+        MetadataResponse cached = cache.getIfPresent(fileId);
+        if (cached != null) {
+            pipelineMetrics.increment("metadata.cache", "result", "hit");
+            return Optional.of(cached);
+        }
+        pipelineMetrics.increment("metadata.cache", "result", "miss");
+
+        // Loading inside the cache means an invalidation during the load removes what it loaded;
+        // files without metadata yet are not cached
+        return Optional.ofNullable(cache.get(fileId, id -> {
+            List<Row> rows = jdbcTemplate.query(SELECT_METADATA + " AND m.file_id = ?", rowMapper, id);
+            return rows.isEmpty() ? null : withTags(rows).get(0);
+        }));
+    }
+
+    /**
+     * One page of metadata matching the query, in file id order.
+     *
+     * @throws IllegalArgumentException when the cursor was not issued by this API
+     */
+    public CursorPage<MetadataResponse> search(MetadataQuery query, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        StringBuilder sql = new StringBuilder(SELECT_METADATA);
+        List<Object> params = new ArrayList<>();
+
+        if (cursor != null && !cursor.isBlank()) {
+            sql.append(" AND m.file_id > ?");
+            params.add(decodeCursor(cursor));
+        }
+        if (query.getTag() != null && !query.getTag().isBlank()) {
+            if (tagStorage == TagStorage.ARRAY) {
+                // GIN index on ai_tags
+                sql.append(" AND m.ai_tags @> ARRAY[?]::text[]");
+            } else {
+                // (ai_tag, metadata_id) index on metadata_ai_tag
+                sql.append(" AND EXISTS (SELECT 1 FROM filesystem.metadata_ai_tag t WHERE t.metadata_id = m.id AND t.ai_tag = ?)");
+            }
+            params.add(query.getTag().trim());
+        }
+        if (query.getSensitive() != null) {
+            sql.append(" AND m.sensitive_flag = ?");
+            params.add(query.getSensitive());
+        }
+        if (query.getConfidential() != null) {
+            sql.append(" AND m.confidential_flag = ?");
+            params.add(query.getConfidential());
+        }
+        if (query.getOwnerId() != null) {
+            sql.append(" AND f.owner_id = ?");
+            params.add(query.getOwnerId());
+        }
+        // One extra row tells whether there is a next page
+        sql.append(" ORDER BY m.file_id LIMIT ?");
+        params.add(pageSize + 1);
+
+        List<Row> rows = jdbcTemplate.query(sql.toString(), rowMapper, params.toArray());
+        boolean more = rows.size() > pageSize;
+        List<MetadataResponse> items = withTags(more ? rows.subList(0, pageSize) : rows);
+
+        String nextCursor = more ? encodeCursor(items.get(items.size() - 1).getFileId()) : null;
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    @EventListener
+    public void onMetadataWritten(MetadataWrittenEvent event) {
+        cache.invalidateAll(event.fileIds());
+    }
+
+    // Rows stored without the ai_tags array take their tags from metadata_ai_tag, in one query per page
+    private List<MetadataResponse> withTags(List<Row> rows) {
+        List<UUID> missing = rows.stream()
+                .filter(row -> row.metadata().getTags() == null)
+                .map(Row::metadataId)
+                .toList();
+
+        if (!missing.isEmpty()) {
+            Map<UUID, List<String>> tags = new HashMap<>();
+            jdbcTemplate.query(SELECT_TAGS,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", missing.toArray())),
+                    rs -> {
+                        tags.computeIfAbsent(rs.getObject("metadata_id", UUID.class), id -> new ArrayList<>())
+                                .add(rs.getString("ai_tag"));
+                    });
+            rows.forEach(row -> {
+                if (row.metadata().getTags() == null) {
+                    row.metadata().setTags(tags.getOrDefault(row.metadataId(), List.of()));
+                }
+            });
+        }
+        return rows.stream().map(Row::metadata).toList();
+    }
+
+    static String encodeCursor(UUID fileId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fileId.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static UUID decodeCursor(String cursor) {
+        try {
+            return UUID.fromString(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    private record Row(UUID metadataId, MetadataResponse metadata) {
+    }
+}
@@ -0,0 +1,256 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.MetadataWrittenEvent;
+import com.file.manager.enums.TagStorage;
+import com.file.manager.metrics.PipelineMetrics;
+import com.file.manager.models.Metadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for {@link Metadata}. Rows are collected and flushed as JDBC batches
+ * when the batch fills up or the flush interval passes, whichever comes first. The returned
+ * future completes only once the row is committed. A file has one metadata row: writing
+ * replaces whatever an earlier run (redelivery, backfill) stored for the same file id.
+ * Each committed batch is announced as a {@link MetadataWrittenEvent}. When a batch fails its
+ * rows are retried one at a time, so a bad row only fails its own file.
+ */
+@Slf4j
+@Service
+public class MetadataWriter {
+
+    private static final String INSERT_METADATA = """
+            INSERT INTO filesystem.metadata
+                (id, file_id, summary, sensitive_flag, confidential_flag, created_at, updated_at, ai_tags, embedding)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String DELETE_TAGS_FOR_FILE = """
+            DELETE FROM filesystem.metadata_ai_tag
+            WHERE metadata_id IN (SELECT id FROM filesystem.metadata WHERE file_id = ?)
+            """;
+
+    private static final String DELETE_METADATA_FOR_FILE = """
+            DELETE FROM filesystem.metadata WHERE file_id = ?
+            """;
+
+    private static final String INSERT_TAG = """
+            INSERT INTO filesystem.metadata_ai_tag (metadata_id, ai_tag) VALUES (?, ?)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${metadata.writer.batch-size:50}")
+    private int batchSize;
+
+    @Value("${metadata.writer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${metadata.writer.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${metadata.tag-storage:COLLECTION}")
+    private TagStorage tagStorage;
+
+    private BlockingQueue<PendingWrite> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::flushLoop, "metadata-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        pipelineMetrics.gauge("metadata.writer.pending", queue, BlockingQueue::size);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // Blocks when the buffer is full, which pushes back on the workers instead of growing the heap
+    public CompletableFuture<Void> write(Metadata metadata) {
+        PendingWrite pending = new PendingWrite(metadata, new CompletableFuture<>());
+        if (!running) {
+            pending.future().completeExceptionally(new IllegalStateException("Metadata writer is shut down"));
+            return pending.future();
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future().completeExceptionally(e);
+        }
+        return pending.future();
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // Give a filling batch up to one interval to reach full size
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) break;
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: write out whatever is left
+                queue.drainTo(batch);
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<Metadata> rows = batch.stream().map(PendingWrite::metadata).toList();
+        try {
+            pipelineMetrics.time(PipelineMetrics.METADATA_FLUSH,
+                    () -> transactionTemplate.execute(status -> {
+                        insert(rows);
+                        return null;
+                    }));
+            // Invalidate cached reads before the writers hear back
+            eventPublisher.publishEvent(new MetadataWrittenEvent(latestPerFile(rows)));
+            batch.forEach(p -> p.future().complete(null));
+            log.debug("Flushed {} metadata rows", rows.size());
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                log.error("Failed to write metadata for file {}", rows.get(0).getFileId(), e);
+                batch.get(0).future().completeExceptionally(e);
+                return;
+            }
+            // One bad row rolls back the whole batch; write them one by one so only that row's file fails
+            log.warn("Failed to flush {} metadata rows, retrying them one by one", rows.size(), e);
+            flushIndividually(batch);
+        }
+    }
+
+    private void flushIndividually(List<PendingWrite> batch) {
+        List<Metadata> written = new ArrayList<>();
+        for (PendingWrite pending : batch) {
+            try {
+                transactionTemplate.execute(status -> {
+                    insert(List.of(pending.metadata()));
+                    return null;
+                });
+                written.add(pending.metadata());
+            } catch (Exception e) {
+                log.error("Failed to write metadata for file {}", pending.metadata().getFileId(), e);
+                pending.future().completeExceptionally(e);
+            }
+        }
+
+        if (!written.isEmpty()) {
+            eventPublisher.publishEvent(new MetadataWrittenEvent(latestPerFile(written)));
+        }
+        for (PendingWrite pending : batch) {
+            if (!pending.future().isDone()) pending.future().complete(null);
+        }
+        log.debug("Flushed {} of {} metadata rows individually", written.size(), batch.size());
+    }
+
+    private void insert(List<Metadata> batchRows) {
+        boolean arrayTags = tagStorage == TagStorage.ARRAY;
+
+        // Last write per file wins, within the batch and against rows already stored
+        List<Metadata> rows = latestPerFile(batchRows);
+
+        List<Object[]> fileIds = rows.stream().map(m -> new Object[]{m.getFileId()}).toList();
+        jdbcTemplate.batchUpdate(DELETE_TAGS_FOR_FILE, fileIds);
+        jdbcTemplate.batchUpdate(DELETE_METADATA_FOR_FILE, fileIds);
+
+        jdbcTemplate.batchUpdate(INSERT_METADATA, rows, rows.size(), (ps, m) -> {
+            ps.setObject(1, m.getId());
+            ps.setObject(2, m.getFileId());
+            ps.setString(3, m.getSummary());
+            ps.setBoolean(4, Boolean.TRUE.equals(m.getSensitiveFlag()));
+            ps.setBoolean(5, Boolean.TRUE.equals(m.getConfidentialFlag()));
+            ps.setTimestamp(6, Timestamp.valueOf(m.getCreatedAt()));
+            ps.setTimestamp(7, Timestamp.valueOf(m.getUpdatedAt()));
+            if (arrayTags && m.getAiTag() != null) {
+                ps.setArray(8, ps.getConnection().createArrayOf("text", m.getAiTag().toArray()));
+            } else {
+                ps.setNull(8, java.sql.Types.ARRAY);
+            }
+            if (m.getEmbedding() != null) {
+                ps.setArray(9, ps.getConnection().createArrayOf("float4", boxed(m.getEmbedding())));
+            } else {
+                ps.setNull(9, java.sql.Types.ARRAY);
+            }
+        });
+
+        if (arrayTags) return;
+
+        List<Object[]> tagRows = new ArrayList<>();
+        for (Metadata m : rows) {
+            if (m.getAiTag() == null) continue;
+            for (String tag : m.getAiTag()) {
+                tagRows.add(new Object[]{m.getId(), tag});
+            }
+        }
+        if (!tagRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TAG, tagRows);
+        }
+    }
+
+    private static List<Metadata> latestPerFile(List<Metadata> rows) {
+        Map<UUID, Metadata> latest = new LinkedHashMap<>();
+        rows.forEach(m -> latest.put(m.getFileId(), m));
+        return List.copyOf(latest.values());
+    }
+
+    private static Float[] boxed(float[] vector) {
+        Float[] boxed = new Float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            boxed[i] = vector[i];
+        }
+        return boxed;
+    }
+
+    private record PendingWrite(Metadata metadata, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.file.manager.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.manager.enums.PromptType;
+import com.file.manager.metrics.PipelineMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Model and generation settings per prompt type, so the high-volume yes/no and tag prompts
+ * can run on a small fast model while summaries use a larger one. Settings are read from
+ * aws.bedrock.prompts.<type>.* and default to aws.bedrock.model-id; a type can also switch to
+ * large-model-id once its prompt passes large-input-tokens.
+ */
+@Slf4j
+@Component
+public class ModelRouter {
+
+    private static final String PREFIX = "aws.bedrock.prompts.";
+
+    @Autowired
+    private Environment environment;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TextChunker textChunker;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${aws.bedrock.model-id}")
+    private String defaultModelId;
+
+    // Per call attempt; a hung call gives its limiter slot back instead of holding it
+    @Value("${aws.bedrock.timeout-seconds:60}")
+    private int defaultTimeoutSeconds;
+
+    private final Map<PromptType, Route> routes = new EnumMap<>(PromptType.class);
+    private String fingerprint;
+
+    public record Route(String modelId, int maxTokens, double temperature, double topP, Duration timeout,
+                        int largeInputTokens, String largeModelId) {
+
+        String modelFor(int inputTokens) {
+            return largeInputTokens > 0 && inputTokens > largeInputTokens ? largeModelId : modelId;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        Map<PromptType, Route> defaults = new EnumMap<>(PromptType.class);
+        for (PromptType type : PromptType.values()) {
+            defaults.put(type, resolve(type, false));
+            routes.put(type, resolve(type, true));
+            log.info("Bedrock prompt {} routed to {}", type.key(), routes.get(type));
+        }
+        // Unchanged routing keeps the plain model id, so existing analysis cache keys stay valid
+        fingerprint = routes.equals(defaults)
+                ? defaultModelId
+                : defaultModelId + "+" + Integer.toHexString(routes.toString().hashCode());
+    }
+
+    // Identifies the whole routing table; part of the analysis cache key so a routing change is not served stale results
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    // Titan text request for the prompt on its routed model
+    public InvokeModelRequest request(PromptType type, String prompt) throws JsonProcessingException {
+        Route route = routes.get(type);
+        String modelId = route.modelFor(textChunker.estimateTokens(prompt));
+
+        Map<String, Object> body = Map.of(
+                "inputText", prompt,
+                "textGenerationConfig", Map.of(
+                        "maxTokenCount", route.maxTokens(),
+                        "temperature", route.temperature(),
+                        "topP", route.topP()
+                )
+        );
+
+        pipelineMetrics.increment("bedrock.requests", "prompt", type.key(), "model", modelId);
+        return InvokeModelRequest.builder()
+                .modelId(modelId)
+                .accept("application/json")
+                .contentType("application/json")
+                .body(SdkBytes.fromString(objectMapper.writeValueAsString(body), StandardCharsets.UTF_8))
+                .overrideConfiguration(c -> c.apiCallTimeout(route.timeout()))
+                .build();
+    }
+
+    private Route resolve(PromptType type, boolean withOverrides) {
+        String prefix = PREFIX + type.configKey() + ".";
+        String modelId = property(withOverrides, prefix + "model-id", String.class, defaultModelId);
+        return new Route(
+                modelId,
+                property(withOverrides, prefix + "max-tokens", Integer.class, type.defaultMaxTokens()),
+                property(withOverrides, prefix + "temperature", Double.class, type.defaultTemperature()),
+                property(withOverrides, prefix + "top-p", Double.class, 0.9),
+                Duration.ofSeconds(property(withOverrides, prefix + "timeout-seconds", Integer.class, defaultTimeoutSeconds)),
+                property(withOverrides, prefix + "large-input-tokens", Integer.class, 0),
+                property(withOverrides, prefix + "large-model-id", String.class, modelId));
+    }
+
+    private <T> T property(boolean withOverrides, String name, Class<T> type, T defaultValue) {
+        return withOverrides ? environment.getProperty(name, type, defaultValue) : defaultValue;
+    }
+}
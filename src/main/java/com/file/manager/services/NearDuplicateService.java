@@ -0,0 +1,286 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.MetadataResponse;
+import com.file.manager.dto.ScanResult;
+import com.file.manager.metrics.PipelineMetrics;
+import com.file.manager.models.Metadata;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Reuses the analysis of a near-identical document (same contract with another date, a
+ * re-exported invoice) instead of asking Bedrock again. Extracted text is reduced to a MinHash
+ * signature over word shingles; the signature's LSH bands are kept in
+ * filesystem.document_signature, and files of the same owner sharing a band are compared on the
+ * full signature.
+ */
+@Slf4j
+@Service
+public class NearDuplicateService {
+
+    private static final Pattern WORD_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Fixed so signatures from every node and every restart are comparable
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private static final String SELECT_CANDIDATES = """
+            SELECT file_id, signature FROM filesystem.document_signature
+            WHERE scope = ? AND owner_id = ? AND bands && ? AND file_id <> ?
+            ORDER BY (SELECT count(*) FROM unnest(bands) b WHERE b = ANY(?)) DESC
+            LIMIT ?
+            """;
+
+    private static final String UPSERT_SIGNATURE = """
+            INSERT INTO filesystem.document_signature (file_id, owner_id, scope, signature, bands, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (file_id) DO UPDATE SET owner_id = EXCLUDED.owner_id, scope = EXCLUDED.scope, signature = EXCLUDED.signature,
+                bands = EXCLUDED.bands, created_at = EXCLUDED.created_at
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private AnalysisCacheService analysisCacheService;
+    @Autowired
+    private MetadataQueryService metadataQueryService;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${near-duplicate.enabled:true}")
+    private boolean enabled;
+
+    // Estimated Jaccard similarity of the shingle sets at or above which an analysis is reused
+    @Value("${near-duplicate.threshold:0.9}")
+    private double threshold;
+
+    @Value("${near-duplicate.hashes:128}")
+    private int hashes;
+
+    // hashes / bands rows per band; 16 x 8 finds ~100% of pairs at 0.9 and ~6% at 0.5
+    @Value("${near-duplicate.bands:16}")
+    private int bands;
+
+    @Value("${near-duplicate.shingle-words:5}")
+    private int shingleWords;
+
+    // Signatures of short texts are too noisy to trust
+    @Value("${near-duplicate.min-words:50}")
+    private int minWords;
+
+    @Value("${near-duplicate.max-candidates:10}")
+    private int maxCandidates;
+
+    private long[] seeds;
+
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong ineligible = new AtomicLong();
+
+    public record Signature(int[] minHashes, long[] bands) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (hashes % bands != 0) {
+            throw new IllegalStateException("near-duplicate.hashes must be a multiple of near-duplicate.bands");
+        }
+        SplittableRandom random = new SplittableRandom(SEED);
+        seeds = new long[hashes];
+        for (int i = 0; i < hashes; i++) {
+            seeds[i] = random.nextLong();
+        }
+
+        pipelineMetrics.functionCounter("near_duplicate.requests", reused, AtomicLong::get, "result", "reused");
+        pipelineMetrics.functionCounter("near_duplicate.requests", missed, AtomicLong::get, "result", "miss");
+        pipelineMetrics.functionCounter("near_duplicate.requests", ineligible, AtomicLong::get, "result", "too_short");
+    }
+
+    /**
+     * MinHash signature of the text, or empty when disabled or the text is too short to compare.
+     */
+    public Optional<Signature> signature(String text) {
+        if (!enabled || text == null) return Optional.empty();
+
+        long[] words = Arrays.stream(WORD_SPLIT.split(text.toLowerCase(Locale.ROOT)))
+                .filter(w -> !w.isEmpty())
+                .mapToLong(w -> mix64(w.hashCode()))
+                .toArray();
+        if (words.length < Math.max(minWords, shingleWords)) {
+            ineligible.incrementAndGet();
+            return Optional.empty();
+        }
+        return Optional.of(pipelineMetrics.time("near_duplicate.signature", () -> minHash(words)));
+    }
+
+    /**
+     * The analysis of the most similar earlier file of the same owner, re-issued for this file, when
+     * one clears the threshold. Other owners' files are never candidates: the few words that differ
+     * are the names, dates and amounts their summary would carry over. Flags are OR-ed with this
+     * file's local scan, since a copy may carry data the original did not.
+     */
+    public Optional<Metadata> findReusable(String pipeline, Signature signature, UUID fileId, UUID ownerId, ScanResult scan) {
+        if (ownerId == null) {
+            missed.incrementAndGet();
+            return Optional.empty();
+        }
+        Optional<Metadata> match = Optional.empty();
+        try {
+            match = pipelineMetrics.time("near_duplicate.lookup", () -> bestMatch(pipeline, signature, fileId, ownerId, scan));
+        } catch (Exception e) {
+            // The lookup only saves work; without it the file is analyzed as usual
+            log.warn("Near-duplicate lookup failed for file {}", fileId, e);
+        }
+        (match.isPresent() ? reused : missed).incrementAndGet();
+        return match;
+    }
+
+    // Call once the file's metadata is committed, so a match always has an analysis to reuse
+    public void remember(String pipeline, UUID fileId, UUID ownerId, Signature signature) {
+        if (ownerId == null) return;
+        try {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(UPSERT_SIGNATURE);
+                ps.setObject(1, fileId);
+                ps.setObject(2, ownerId);
+                ps.setString(3, scope(pipeline));
+                ps.setArray(4, con.createArrayOf("integer", Arrays.stream(signature.minHashes()).boxed().toArray()));
+                ps.setArray(5, con.createArrayOf("bigint", Arrays.stream(signature.bands()).boxed().toArray()));
+                ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+                return ps;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to store document signature for file {}", fileId, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.analysis.stats-interval-ms:300000}")
+    public void logStats() {
+        long total = reused.get() + missed.get() + ineligible.get();
+        if (total == 0) return;
+        log.info("Near-duplicate reuse: {} of {} documents skipped analysis ({}%), {} misses, {} too short to compare",
+                reused.get(), total, Math.round(100.0 * reused.get() / total), missed.get(), ineligible.get());
+    }
+
+    private Optional<Metadata> bestMatch(String pipeline, Signature signature, UUID fileId, UUID ownerId, ScanResult scan) {
+        List<Candidate> candidates = jdbcTemplate.query(con -> {
+            Array bandArray = con.createArrayOf("bigint", Arrays.stream(signature.bands()).boxed().toArray());
+            PreparedStatement ps = con.prepareStatement(SELECT_CANDIDATES);
+            ps.setString(1, scope(pipeline));
+            ps.setObject(2, ownerId);
+            ps.setArray(3, bandArray);
+            ps.setObject(4, fileId);
+            ps.setArray(5, bandArray);
+            ps.setInt(6, maxCandidates);
+            return ps;
+        }, (rs, rowNum) -> {
+            Object[] values = (Object[]) rs.getArray("signature").getArray();
+            int[] minHashes = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                minHashes[i] = ((Number) values[i]).intValue();
+            }
+            return new Candidate(rs.getObject("file_id", UUID.class), similarity(signature.minHashes(), minHashes));
+        });
+
+        // Best first; a candidate whose metadata is gone or failed analysis falls through to the next
+        List<Candidate> eligible = new ArrayList<>(candidates.stream().filter(c -> c.similarity() >= threshold).toList());
+        eligible.sort((a, b) -> Double.compare(b.similarity(), a.similarity()));
+        for (Candidate candidate : eligible) {
+            Optional<MetadataResponse> source = metadataQueryService.findByFileId(candidate.fileId());
+            if (source.isEmpty() || source.get().getSummary() == null) continue;
+
+            log.info("Reusing analysis of file {} for near-duplicate {} (similarity {})",
+                    candidate.fileId(), fileId, String.format("%.3f", candidate.similarity()));
+            return Optional.of(adapt(source.get(), fileId, scan));
+        }
+        return Optional.empty();
+    }
+
+    private Metadata adapt(MetadataResponse source, UUID fileId, ScanResult scan) {
+        return Metadata.builder()
+                .id(UUID.randomUUID())
+                .fileId(fileId)
+                .aiTag(source.getTags() == null ? List.of() : new ArrayList<>(source.getTags()))
+                .summary(source.getSummary())
+                .sensitiveFlag(source.isSensitiveFlag() || scan.isSensitive())
+                .confidentialFlag(source.isConfidentialFlag() || scan.isConfidential())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    // Changing the signature parameters makes older signatures incomparable, so they are part of the scope
+    private String scope(String pipeline) {
+        return analysisCacheService.scope(pipeline) + ":mh" + hashes + "x" + bands + "w" + shingleWords;
+    }
+
+    private Signature minHash(long[] words) {
+        long[] mins = new long[hashes];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        for (int start = 0; start + shingleWords <= words.length; start++) {
+            long shingle = 0;
+            for (int w = start; w < start + shingleWords; w++) {
+                shingle = mix64(shingle ^ words[w]);
+            }
+            for (int h = 0; h < hashes; h++) {
+                long value = mix64(shingle ^ seeds[h]);
+                if (value < mins[h]) mins[h] = value;
+            }
+        }
+
+        int[] minHashes = new int[hashes];
+        for (int h = 0; h < hashes; h++) {
+            minHashes[h] = (int) (mins[h] >>> 32);
+        }
+
+        int rows = hashes / bands;
+        long[] bandKeys = new long[bands];
+        for (int b = 0; b < bands; b++) {
+            // The band index is mixed in so equal rows in different bands do not collide
+            long key = mix64(b + 1L);
+            for (int r = 0; r < rows; r++) {
+                key = mix64(key ^ (minHashes[b * rows + r] & 0xffffffffL));
+            }
+            bandKeys[b] = key;
+        }
+        return new Signature(minHashes, bandKeys);
+    }
+
+    // Share of equal positions, an unbiased estimate of the Jaccard similarity of the shingle sets
+    static double similarity(int[] a, int[] b) {
+        if (a.length != b.length) return 0;
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) equal++;
+        }
+        return (double) equal / a.length;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Candidate(UUID fileId, double similarity) {
+    }
+}
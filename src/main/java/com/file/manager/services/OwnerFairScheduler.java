@@ -0,0 +1,290 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.FileDto;
+import com.file.manager.metrics.PipelineMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sits between receiving files and the handler pools. Files queue per owner and owners
+ * are served by deficit round-robin with file size as the cost, so one owner's bulk
+ * import gets its fair share of workers instead of all of them. Each owner also has a
+ * concurrency cap, and within an owner smaller files go first.
+ *
+ * <p>Fairness only applies to what has been received: SQS pollers may hold
+ * {@code fair.lookahead} files beyond the worker slots so there is something to choose from
+ * (the job claimer uses its own, smaller {@code jobs.claim-backlog}).
+ */
+@Slf4j
+@Service
+public class OwnerFairScheduler {
+
+    private static final UUID UNKNOWN_OWNER = new UUID(0, 0);
+
+    @Autowired
+    private FileHandlerRegistry handlerRegistry;
+    @Autowired
+    private Environment environment;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${fair.enabled:true}")
+    private boolean enabled;
+
+    // Files that may wait here beyond what the handler pools can take
+    @Value("${fair.lookahead:200}")
+    private int lookahead;
+
+    // Bytes of credit an owner earns per round (times its weight)
+    @Value("${fair.quantum-bytes:4194304}")
+    private long quantumBytes;
+
+    @Value("${fair.owner-max-concurrency:8}")
+    private int defaultOwnerMaxConcurrency;
+
+    private final Object lock = new Object();
+    private final Map<UUID, OwnerQueue> owners = new HashMap<>();
+    // Owners with queued files, in round-robin order; the head is the one being served
+    private final Deque<OwnerQueue> round = new ArrayDeque<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private int queued;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "fair-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+
+        pipelineMetrics.gauge("fair.queued", this, s -> s.queuedCount());
+        pipelineMetrics.gauge("fair.owners.active", this, s -> s.activeOwnerCount());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) dispatcher.interrupt();
+    }
+
+    // Extra receive budget for callers sizing how much work they take on
+    public int lookahead() {
+        return enabled ? lookahead : 0;
+    }
+
+    /**
+     * Queues the task behind the owner's other files. With fair scheduling disabled it goes
+     * straight to the handler pool.
+     *
+     * @throws RejectedExecutionException only when disabled and the handler's queue is full
+     */
+    public void submit(FileDto file, Runnable task) {
+        if (!enabled) {
+            handlerRegistry.submit(file, task);
+            return;
+        }
+
+        UUID ownerId = file.getOwnerId() == null ? UNKNOWN_OWNER : file.getOwnerId();
+        Pending pending = new Pending(file, task, sizeBucket(file.getFileSize()), sequence.incrementAndGet(), System.nanoTime());
+        synchronized (lock) {
+            OwnerQueue owner = owners.computeIfAbsent(ownerId, this::newOwnerQueue);
+            if (!owner.inRound) {
+                owner.inRound = true;
+                round.addLast(owner);
+            }
+            owner.files.add(pending);
+            queued++;
+            lock.notifyAll();
+        }
+    }
+
+    // Shutdown: takes every file not yet handed to a pool, for the caller to return to its queue
+    public List<Runnable> drainPending() {
+        List<Runnable> tasks = new ArrayList<>();
+        synchronized (lock) {
+            for (OwnerQueue owner : round) {
+                owner.files.forEach(pending -> tasks.add(pending.task()));
+                owner.files.clear();
+                owner.inRound = false;
+            }
+            round.clear();
+            owners.values().removeIf(owner -> owner.inFlight == 0);
+            queued = 0;
+        }
+        return tasks;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                Pending next;
+                synchronized (lock) {
+                    next = pickNext();
+                    if (next == null) {
+                        // Woken by a new file or a finished one; the timeout covers handler pools freeing up
+                        lock.wait(50);
+                        continue;
+                    }
+                }
+                dispatch(next);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Fair dispatcher error", e);
+            }
+        }
+    }
+
+    // Deficit round-robin over owners with queued files. Caller holds the lock.
+    private Pending pickNext() {
+        // Every pass credits each eligible owner once, so a large file is reached after size / quantum passes
+        while (!round.isEmpty()) {
+            boolean anyEligible = false;
+            for (int visited = 0, inRound = round.size(); visited < inRound; visited++) {
+                OwnerQueue owner = round.peekFirst();
+                Pending head = owner.files.peek();
+
+                if (head == null) {
+                    round.pollFirst();
+                    owner.inRound = false;
+                    owner.deficit = 0;
+                    owner.turnStarted = false;
+                    continue;
+                }
+
+                boolean eligible = owner.inFlight < owner.maxConcurrency && handlerRegistry.hasIdleWorker(head.file());
+                if (eligible) {
+                    anyEligible = true;
+                    if (!owner.turnStarted) {
+                        owner.deficit += owner.quantum;
+                        owner.turnStarted = true;
+                    }
+                    if (owner.deficit >= cost(head)) {
+                        owner.deficit -= cost(head);
+                        owner.files.poll();
+                        owner.inFlight++;
+                        queued--;
+                        return head;
+                    }
+                } else {
+                    owner.deficit = Math.min(owner.deficit, owner.quantum); // no banking credit while blocked
+                }
+
+                // Turn over: out of credit, at its cap, or its next file's handler is busy
+                round.pollFirst();
+                owner.turnStarted = false;
+                round.addLast(owner);
+            }
+            if (!anyEligible) return null;
+        }
+        return null;
+    }
+
+    private void dispatch(Pending pending) {
+        UUID ownerId = pending.file().getOwnerId() == null ? UNKNOWN_OWNER : pending.file().getOwnerId();
+        pipelineMetrics.record("fair.wait", "success", System.nanoTime() - pending.enqueuedAt());
+        try {
+            handlerRegistry.submit(pending.file(), () -> {
+                try {
+                    pending.task().run();
+                } finally {
+                    finished(ownerId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Pool filled between the check and the submit; put it back at the front of the owner's queue
+            synchronized (lock) {
+                OwnerQueue owner = owners.get(ownerId);
+                owner.inFlight--;
+                if (!owner.inRound) {
+                    owner.inRound = true;
+                    round.addFirst(owner);
+                }
+                owner.files.add(pending);
+                queued++;
+            }
+        }
+    }
+
+    private void finished(UUID ownerId) {
+        synchronized (lock) {
+            OwnerQueue owner = owners.get(ownerId);
+            owner.inFlight--;
+            if (owner.inFlight == 0 && owner.files.isEmpty()) {
+                owners.remove(ownerId);
+            }
+            lock.notifyAll();
+        }
+    }
+
+    // Reads fair.owners.<owner-id>.weight / max-concurrency
+    private OwnerQueue newOwnerQueue(UUID ownerId) {
+        String prefix = "fair.owners." + ownerId + ".";
+        double weight = environment.getProperty(prefix + "weight", Double.class, 1.0);
+        int maxConcurrency = environment.getProperty(prefix + "max-concurrency", Integer.class, defaultOwnerMaxConcurrency);
+        return new OwnerQueue((long) (quantumBytes * weight), maxConcurrency);
+    }
+
+    // At least one byte, so size-less events still consume credit
+    private static long cost(Pending pending) {
+        Long size = pending.file().getFileSize();
+        return size == null ? 1 : Math.max(1, size);
+    }
+
+    // Files within the same power of two are served in arrival order
+    private static int sizeBucket(Long fileSize) {
+        return fileSize == null || fileSize <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(fileSize);
+    }
+
+    private int queuedCount() {
+        synchronized (lock) {
+            return queued;
+        }
+    }
+
+    private int activeOwnerCount() {
+        synchronized (lock) {
+            return owners.size();
+        }
+    }
+
+    private static final class OwnerQueue {
+        final PriorityQueue<Pending> files = new PriorityQueue<>(
+                Comparator.comparingInt(Pending::sizeBucket).thenComparingLong(Pending::sequence));
+        final long quantum;
+        final int maxConcurrency;
+        long deficit;
+        boolean turnStarted;
+        boolean inRound;
+        int inFlight;
+
+        OwnerQueue(long quantum, int maxConcurrency) {
+            this.quantum = quantum;
+            this.maxConcurrency = maxConcurrency;
+        }
+    }
+
+    private record Pending(FileDto file, Runnable task, int sizeBucket, long sequence, long enqueuedAt) {
+    }
+}
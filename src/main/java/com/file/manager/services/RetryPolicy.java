@@ -0,0 +1,35 @@
+package com.file.manager.services;
+
+import com.file.manager.enums.FailureKind;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often and how soon a failed file is tried again. Attempts are the SQS receive count in
+ * DIRECT mode and the job's attempts in QUEUE mode; both stop at {@code jobs.max-attempts}.
+ */
+@Component
+public class RetryPolicy {
+
+    @Value("${jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${failures.backoff-base-seconds:30}")
+    private int backoffBaseSeconds;
+
+    // SQS caps a message's visibility at 12 hours
+    @Value("${failures.backoff-max-seconds:900}")
+    private int backoffMaxSeconds;
+
+    public boolean shouldRetry(FileProcessingException failure, int attempt) {
+        return failure.getKind() == FailureKind.RETRYABLE && attempt < maxAttempts;
+    }
+
+    // Exponential in the attempt, with jitter so a burst of failures does not come back as a burst
+    public int backoffSeconds(int attempt) {
+        long ceiling = Math.min(backoffMaxSeconds, (long) backoffBaseSeconds << Math.min(20, Math.max(0, attempt - 1)));
+        return (int) ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+}
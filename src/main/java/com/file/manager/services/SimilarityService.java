@@ -0,0 +1,231 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.MetadataWrittenEvent;
+import com.file.manager.dto.SimilarFile;
+import com.file.manager.metrics.PipelineMetrics;
+import com.file.manager.models.Metadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Similar-file lookup over the metadata embeddings. The {@link HnswIndex} is loaded from
+ * filesystem.metadata at startup, then kept current from this node's writes (MetadataWrittenEvent)
+ * and, for other nodes' writes, by polling rows updated since the last poll. All index writes run
+ * on one indexer thread, so the metadata writer never waits on graph inserts.
+ */
+@Slf4j
+@Service
+public class SimilarityService {
+
+    private static final String SELECT_EMBEDDINGS = """
+            SELECT file_id, embedding, updated_at FROM filesystem.metadata
+            WHERE embedding IS NOT NULL AND updated_at > ?
+            ORDER BY updated_at
+            """;
+
+    private static final String SELECT_EMBEDDING = """
+            SELECT embedding FROM filesystem.metadata WHERE file_id = ? AND embedding IS NOT NULL
+            """;
+
+    private static final String SELECT_OWNED = """
+            SELECT id FROM filesystem.file WHERE owner_id = ? AND id = ANY(?)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EmbeddingService embeddingService;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    // Links per node; more is better recall and more memory
+    @Value("${similarity.m:16}")
+    private int m;
+
+    @Value("${similarity.ef-construction:200}")
+    private int efConstruction;
+
+    // Candidates examined per query; raise for recall, lower for latency
+    @Value("${similarity.ef-search:64}")
+    private int efSearch;
+
+    @Value("${similarity.max-results:100}")
+    private int maxResults;
+
+    // Re-read this far behind the last poll: updated_at is set before commit, so rows can land late
+    @Value("${similarity.refresh-overlap-seconds:300}")
+    private long refreshOverlapSeconds;
+
+    // Rebuild once this share of nodes are replaced or removed vectors
+    @Value("${similarity.compact-ratio:0.3}")
+    private double compactRatio;
+
+    private volatile HnswIndex index;
+    private volatile boolean ready;
+    private LocalDateTime watermark = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private ExecutorService indexer;
+
+    @PostConstruct
+    public void init() {
+        index = new HnswIndex(embeddingService.dimensions(), m, efConstruction, 1024);
+        indexer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("similarity-indexer-"));
+
+        pipelineMetrics.gauge("similarity.index.vectors", this, s -> s.index.liveCount());
+        pipelineMetrics.gauge("similarity.index.nodes", this, s -> s.index.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        indexer.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!embeddingService.isEnabled()) return;
+        indexer.execute(() -> {
+            long start = System.nanoTime();
+            int loaded = catchUp();
+            ready = true;
+            log.info("Similarity index loaded {} vectors in {} ms", loaded, (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+
+    @EventListener
+    public void onMetadataWritten(MetadataWrittenEvent event) {
+        if (!embeddingService.isEnabled()) return;
+        List<Metadata> rows = event.rows();
+        indexer.execute(() -> {
+            for (Metadata row : rows) {
+                if (row.getEmbedding() != null) {
+                    add(row.getFileId(), row.getEmbedding(), row.getUpdatedAt());
+                } else {
+                    // Reprocessed without a vector: the old one no longer describes the file
+                    index.remove(row.getFileId());
+                }
+            }
+            compactIfNeeded();
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${similarity.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!ready) return;
+        indexer.execute(() -> {
+            int added = catchUp();
+            if (added > 0) log.debug("Similarity index picked up {} vectors from other nodes", added);
+            compactIfNeeded();
+        });
+    }
+
+    /**
+     * Files most similar to the given one, best first. Empty when the file has no embedding.
+     * The index spans every owner: with an ownerId, neighbours are drawn from the top
+     * similarity.max-results and filtered to that owner's files, so fewer than k may come back.
+     */
+    public Optional<List<SimilarFile>> similarTo(UUID fileId, int k, UUID ownerId) {
+        int limit = Math.max(1, Math.min(k, maxResults));
+        int candidates = ownerId == null ? limit : maxResults;
+        Optional<float[]> vector = index.vector(fileId).or(() -> loadVector(fileId));
+        return vector.map(v -> {
+            List<HnswIndex.Neighbour> neighbours = pipelineMetrics.time("similarity.search",
+                    () -> index.search(v, candidates, Math.max(efSearch, candidates), fileId));
+            if (ownerId != null) neighbours = ownedBy(ownerId, neighbours);
+            return neighbours.stream()
+                    .limit(limit)
+                    .map(n -> new SimilarFile(n.key(), n.score()))
+                    .toList();
+        });
+    }
+
+    private List<HnswIndex.Neighbour> ownedBy(UUID ownerId, List<HnswIndex.Neighbour> neighbours) {
+        if (neighbours.isEmpty()) return neighbours;
+        Object[] keys = neighbours.stream().map(HnswIndex.Neighbour::key).toArray();
+        Set<UUID> owned = new HashSet<>();
+        jdbcTemplate.query(SELECT_OWNED,
+                ps -> {
+                    ps.setObject(1, ownerId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", keys));
+                },
+                rs -> {
+                    owned.add(rs.getObject("id", UUID.class));
+                });
+        return neighbours.stream().filter(n -> owned.contains(n.key())).toList();
+    }
+
+    // Indexer thread only
+    private int catchUp() {
+        LocalDateTime since = watermark.minusSeconds(refreshOverlapSeconds);
+        int[] added = {0};
+        try {
+            jdbcTemplate.query(SELECT_EMBEDDINGS, rs -> {
+                LocalDateTime updatedAt = rs.getTimestamp("updated_at").toLocalDateTime();
+                if (add(rs.getObject("file_id", UUID.class), readVector(rs), updatedAt)) added[0]++;
+                if (updatedAt.isAfter(watermark)) watermark = updatedAt;
+            }, Timestamp.valueOf(since));
+        } catch (Exception e) {
+            log.error("Failed to load embeddings into the similarity index", e);
+        }
+        return added[0];
+    }
+
+    // Indexer thread only
+    private boolean add(UUID fileId, float[] vector, LocalDateTime updatedAt) {
+        if (vector == null || vector.length != index.dimensions()) {
+            // Written under another embedding model or size; it is re-embedded on the next reprocess
+            pipelineMetrics.increment("similarity.index.skipped", "reason", "dimensions");
+            return false;
+        }
+        long version = updatedAt == null ? System.currentTimeMillis() : Timestamp.valueOf(updatedAt).getTime();
+        return index.add(fileId, vector, version);
+    }
+
+    // Indexer thread only; searches keep using the old graph until the swap
+    private void compactIfNeeded() {
+        HnswIndex current = index;
+        int nodes = current.size();
+        if (nodes < 1000 || nodes - current.liveCount() < nodes * compactRatio) return;
+
+        long start = System.nanoTime();
+        index = current.rebuilt();
+        log.info("Similarity index compacted from {} to {} nodes in {} ms",
+                nodes, index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Optional<float[]> loadVector(UUID fileId) {
+        List<float[]> vectors = jdbcTemplate.query(SELECT_EMBEDDING, (rs, rowNum) -> readVector(rs), fileId);
+        return vectors.stream().findFirst();
+    }
+
+    private static float[] readVector(ResultSet rs) throws SQLException {
+        Array array = rs.getArray("embedding");
+        if (array == null) return null;
+        Object[] values = (Object[]) array.getArray();
+        float[] vector = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            vector[i] = ((Number) values[i]).floatValue();
+        }
+        return vector;
+    }
+}
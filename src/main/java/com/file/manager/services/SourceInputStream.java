@@ -0,0 +1,76 @@
+package com.file.manager.services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Wraps the object stream handed to a parser so a failed read (connection closed, truncated
+ * chunk) can be told apart from the parser rejecting the bytes. Parsers wrap both kinds of
+ * IOException the same way; the marker survives the wrapping and the failure is kept in case a
+ * parser drops the cause.
+ */
+class SourceInputStream extends FilterInputStream {
+
+    private volatile ReadException failure;
+
+    SourceInputStream(InputStream in) {
+        super(in);
+    }
+
+    // The read that broke the stream, if any
+    ReadException failure() {
+        return failure;
+    }
+
+    @Override
+    public int read() throws IOException {
+        try {
+            return super.read();
+        } catch (IOException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        try {
+            return super.read(b, off, len);
+        } catch (IOException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        try {
+            return super.skip(n);
+        } catch (IOException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        try {
+            return super.available();
+        } catch (IOException e) {
+            throw failed(e);
+        }
+    }
+
+    private ReadException failed(IOException e) {
+        ReadException readException = e instanceof ReadException re ? re : new ReadException(e);
+        failure = readException;
+        return readException;
+    }
+
+    /**
+     * The bytes never arrived; always retryable, whatever the parser wrapped it in.
+     */
+    public static class ReadException extends IOException {
+        ReadException(IOException cause) {
+            super("Reading the source object failed: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.file.manager.services;
+
+import com.file.manager.metrics.PipelineMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the lifecycle of received SQS messages: deletes are grouped into
+ * DeleteMessageBatch calls, and messages still being worked on get their
+ * visibility extended with ChangeMessageVisibilityBatch so they are not
+ * redelivered mid-processing.
+ */
+@Slf4j
+@Service
+public class SqsMessageAcknowledger {
+
+    private static final int MAX_BATCH = 10; // SQS batch API limit
+    private static final Duration MAX_VISIBILITY = Duration.ofHours(12);
+
+    @Autowired
+    private SqsClient sqsClient;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+    @Autowired
+    private JobQueueService jobQueueService;
+
+    @Value("${aws.sqs.queue-url}")
+    private String queueUrl;
+
+    @Value("${aws.sqs.visibility-timeout-seconds:120}")
+    private int visibilityTimeoutSeconds;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final List<Message> pendingDeletes = new ArrayList<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        pipelineMetrics.gauge("sqs.messages.in.flight", inFlight, Map::size);
+    }
+
+    public int getVisibilityTimeoutSeconds() {
+        return visibilityTimeoutSeconds;
+    }
+
+    public void track(Message message) {
+        Instant now = Instant.now();
+        inFlight.put(message.messageId(), new InFlight(message, now, now));
+    }
+
+    // Processing finished: stop heartbeating and delete with the next batch
+    public void ack(Message message) {
+        inFlight.remove(message.messageId());
+
+        List<Message> batch = null;
+        synchronized (pendingDeletes) {
+            pendingDeletes.add(message);
+            if (pendingDeletes.size() >= MAX_BATCH) {
+                batch = new ArrayList<>(pendingDeletes);
+                pendingDeletes.clear();
+            }
+        }
+        if (batch != null) {
+            deleteBatch(batch);
+        }
+    }
+
+    // Processing gave up on the message: stop heartbeating and let it become visible again
+    public void forget(Message message) {
+        inFlight.remove(message.messageId());
+    }
+
+    // Failed but worth retrying: visible again after the backoff rather than the full visibility timeout
+    public void retryLater(Message message, int delaySeconds) {
+        inFlight.remove(message.messageId());
+        try {
+            sqsClient.changeMessageVisibility(b -> b.queueUrl(queueUrl)
+                    .receiptHandle(message.receiptHandle())
+                    .visibilityTimeout(delaySeconds));
+        } catch (Exception e) {
+            log.warn("Failed to delay message {}, it returns after its visibility timeout", message.messageId(), e);
+        }
+    }
+
+    // Hand messages back right away (visibility 0) instead of waiting out their timeout
+    public void release(List<Message> messages) {
+        messages.forEach(message -> inFlight.remove(message.messageId()));
+        for (int i = 0; i < messages.size(); i += MAX_BATCH) {
+            releaseBatch(messages.subList(i, Math.min(messages.size(), i + MAX_BATCH)));
+        }
+    }
+
+    // Shutdown deadline: whatever is still being processed goes back to the queue for another consumer
+    public int releaseInFlight() {
+        List<Message> messages = inFlight.values().stream().map(InFlight::message).toList();
+        release(messages);
+        return messages.size();
+    }
+
+    @Scheduled(fixedDelayString = "${aws.sqs.delete-flush-interval-ms:500}")
+    public void flushDeletes() {
+        List<Message> batch;
+        synchronized (pendingDeletes) {
+            if (pendingDeletes.isEmpty()) return;
+            batch = new ArrayList<>(pendingDeletes);
+            pendingDeletes.clear();
+        }
+        for (int i = 0; i < batch.size(); i += MAX_BATCH) {
+            deleteBatch(batch.subList(i, Math.min(batch.size(), i + MAX_BATCH)));
+        }
+    }
+
+    // Extend messages that have used half of their current visibility window
+    @Scheduled(fixedDelayString = "${aws.sqs.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        Instant now = Instant.now();
+        Duration halfWindow = Duration.ofSeconds(visibilityTimeoutSeconds / 2);
+
+        List<InFlight> due = inFlight.values().stream()
+                .filter(m -> m.lastExtendedAt().plus(halfWindow).isBefore(now))
+                .filter(m -> m.receivedAt().plus(MAX_VISIBILITY).isAfter(now.plusSeconds(visibilityTimeoutSeconds)))
+                .toList();
+
+        for (int i = 0; i < due.size(); i += MAX_BATCH) {
+            extendBatch(due.subList(i, Math.min(due.size(), i + MAX_BATCH)), now);
+        }
+
+        // Their job rows are leased too; without renewal the exhausted-attempts sweep fails long files mid-processing
+        List<UUID> jobIds = inFlight.keySet().stream().map(JobQueueService::jobIdForMessage).toList();
+        try {
+            jobQueueService.renewLeases(jobIds);
+        } catch (Exception e) {
+            log.error("Failed to renew job leases for {} in-flight messages", jobIds.size(), e);
+        }
+    }
+
+    private void deleteBatch(List<Message> messages) {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            entries.add(DeleteMessageBatchRequestEntry.builder()
+                    .id(String.valueOf(i))
+                    .receiptHandle(messages.get(i).receiptHandle())
+                    .build());
+        }
+
+        try {
+            DeleteMessageBatchResponse response = sqsClient.deleteMessageBatch(b -> b.queueUrl(queueUrl).entries(entries));
+            for (BatchResultErrorEntry failed : response.failed()) {
+                log.error("Failed to delete message {}: {} {}",
+                        messages.get(Integer.parseInt(failed.id())).messageId(), failed.code(), failed.message());
+            }
+        } catch (Exception e) {
+            log.error("DeleteMessageBatch failed for {} messages", messages.size(), e);
+        }
+    }
+
+    private void releaseBatch(List<Message> messages) {
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                    .id(String.valueOf(i))
+                    .receiptHandle(messages.get(i).receiptHandle())
+                    .visibilityTimeout(0)
+                    .build());
+        }
+
+        try {
+            ChangeMessageVisibilityBatchResponse response =
+                    sqsClient.changeMessageVisibilityBatch(b -> b.queueUrl(queueUrl).entries(entries));
+            for (BatchResultErrorEntry failed : response.failed()) {
+                log.warn("Failed to release message {}: {} {}",
+                        messages.get(Integer.parseInt(failed.id())).messageId(), failed.code(), failed.message());
+            }
+        } catch (Exception e) {
+            log.error("ChangeMessageVisibilityBatch failed to release {} messages", messages.size(), e);
+        }
+    }
+
+    private void extendBatch(List<InFlight> messages, Instant now) {
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                    .id(String.valueOf(i))
+                    .receiptHandle(messages.get(i).message().receiptHandle())
+                    .visibilityTimeout(visibilityTimeoutSeconds)
+                    .build());
+        }
+
+        try {
+            ChangeMessageVisibilityBatchResponse response =
+                    sqsClient.changeMessageVisibilityBatch(b -> b.queueUrl(queueUrl).entries(entries));
+            for (InFlight m : messages) {
+                // Only refresh entries still in flight; a concurrent ack must win
+                inFlight.computeIfPresent(m.message().messageId(), (id, current) -> current.extendedAt(now));
+            }
+            for (BatchResultErrorEntry failed : response.failed()) {
+                log.warn("Failed to extend visibility of message {}: {} {}",
+                        messages.get(Integer.parseInt(failed.id())).message().messageId(), failed.code(), failed.message());
+            }
+        } catch (Exception e) {
+            log.error("ChangeMessageVisibilityBatch failed for {} messages", messages.size(), e);
+        }
+    }
+
+    private record InFlight(Message message, Instant receivedAt, Instant lastExtendedAt) {
+        InFlight extendedAt(Instant when) {
+            return new InFlight(message, receivedAt, when);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.file.manager.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Splits extracted document text into pieces that fit a token budget,
+ * preferring page breaks, then paragraph breaks, then whitespace.
+ */
+@Component
+public class TextChunker {
+
+    // Rough average for English text with the Titan tokenizer
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private static final Pattern PAGE_BREAK = Pattern.compile("\f");
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n\\s*\\n");
+
+    public int estimateTokens(String text) {
+        if (text == null) return 0;
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public List<String> chunk(String text, int tokenBudget) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) return chunks;
+
+        int maxChars = Math.max(1, tokenBudget) * CHARS_PER_TOKEN;
+        StringBuilder current = new StringBuilder();
+
+        // Whole pages are packed together; only a page that does not fit on its own is cut at paragraphs
+        for (String page : PAGE_BREAK.split(text)) {
+            String trimmed = page.trim();
+            if (trimmed.isEmpty()) continue;
+
+            if (trimmed.length() > maxChars) {
+                flush(current, chunks);
+                chunkParagraphs(trimmed, maxChars, chunks);
+                continue;
+            }
+            append(current, trimmed, maxChars, chunks);
+        }
+        flush(current, chunks);
+        return chunks;
+    }
+
+    private void chunkParagraphs(String page, int maxChars, List<String> chunks) {
+        StringBuilder current = new StringBuilder();
+        for (String paragraph : PARAGRAPH_BREAK.split(page)) {
+            String trimmed = paragraph.trim();
+            if (trimmed.isEmpty()) continue;
+
+            if (trimmed.length() > maxChars) {
+                flush(current, chunks);
+                splitOversized(trimmed, maxChars, chunks);
+                continue;
+            }
+            append(current, trimmed, maxChars, chunks);
+        }
+        flush(current, chunks);
+    }
+
+    private void append(StringBuilder current, String piece, int maxChars, List<String> chunks) {
+        if (current.length() + piece.length() + 2 > maxChars) {
+            flush(current, chunks);
+        }
+        if (current.length() > 0) current.append("\n\n");
+        current.append(piece);
+    }
+
+    // A single paragraph bigger than the budget: cut at the last whitespace before the limit
+    private void splitOversized(String paragraph, int maxChars, List<String> chunks) {
+        int start = 0;
+        while (start < paragraph.length()) {
+            int end = Math.min(paragraph.length(), start + maxChars);
+            if (end < paragraph.length()) {
+                int space = paragraph.lastIndexOf(' ', end);
+                if (space > start) end = space;
+            }
+            String piece = paragraph.substring(start, end).trim();
+            if (!piece.isEmpty()) chunks.add(piece);
+            start = end;
+        }
+    }
+
+    private void flush(StringBuilder current, List<String> chunks) {
+        if (current.length() > 0) {
+            chunks.add(current.toString());
+            current.setLength(0);
+        }
+    }
+}
@@ -1,79 +1,175 @@
 package com.file.manager.services;
 
 import com.file.manager.dto.FileDto;
+import com.file.manager.dto.ScanResult;
 import com.file.manager.dto.SummaryResponse;
 import com.file.manager.enums.JobStatus;
+import com.file.manager.metrics.PipelineMetrics;
 import com.file.manager.models.Metadata;
-import com.file.manager.repositories.MetadataRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.tika.Tika;
+import org.apache.tika.io.TikaInputStream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
-public class TextPdfFileService {
+public class TextPdfFileService implements FileHandler {
 
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
+    // Objects above this size are spooled to a temp file rather than parsed off the socket
+    @Value("${aws.s3.spill-threshold-bytes:16777216}")
+    private long spillThresholdBytes;
+
     @Autowired
     private S3Client s3Client;
     @Autowired
-    private MetadataRepository metadataRepository;
+    private MetadataWriter metadataWriter;
+    @Autowired
+    private EmbeddingService embeddingService;
     @Autowired
     private BedrockService bedrockService;
+    @Autowired
+    private AnalysisCacheService analysisCacheService;
+    @Autowired
+    private NearDuplicateService nearDuplicateService;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+    @Autowired
+    private ConfidentialScanner confidentialScanner;
+    @Autowired
+    private TikaExtractionService tikaExtractionService;
 
-    public JobStatus handleTextFile(FileDto file) {
-        try {
-            byte[] fileBytes = downloadFileFromS3(file.getS3Key());
+    @Override
+    public String name() {
+        return "text";
+    }
 
-            // Extract text with Tika
-            String extractedText = extractTextFromFile(fileBytes);
+    @Override
+    public List<String> mimeTypes() {
+        return List.of("application/pdf", "text/plain");
+    }
 
-            // Call Bedrock core
-            SummaryResponse result = bedrockService.analyzeContent(extractedText, 40);
+    @Override
+    public JobStatus handle(FileDto file) throws Exception {
+        // Same bytes already analyzed under another file id
+        String cacheKey = analysisCacheService.cacheKey("text",
+                java.net.URLDecoder.decode(file.getS3Key(), StandardCharsets.UTF_8));
+        Optional<Metadata> cached = analysisCacheService.lookup(cacheKey, file.getId());
+        if (cached.isPresent()) {
+            // Entries cached before embeddings existed get one now
+            embeddingService.attach(cached.get());
+            pipelineMetrics.time(PipelineMetrics.METADATA_SAVE, () -> metadataWriter.write(cached.get()).join());
+            return JobStatus.COMPLETED;
+        }
 
-            Metadata metadata = Metadata.builder()
-                    .id(UUID.randomUUID())
-                    .fileId(file.getId())
-                    .summary(result.getSummary())
-                    .sensitiveFlag(result.isSensitive())
-                    .confidentialFlag(result.isConfidential())
-                    .createdAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
-                    .build();
+        // Stream the object straight into Tika
+        String extractedText = downloadAndExtractText(file);
 
-            metadataRepository.save(metadata);
+        // Cheap local pass first; whatever it settles is not asked of Bedrock
+        ScanResult scan = confidentialScanner.scan(extractedText);
 
+        // Near-identical text already analyzed under another file id
+        Optional<NearDuplicateService.Signature> signature = nearDuplicateService.signature(extractedText);
+        Optional<Metadata> nearDuplicate = signature.flatMap(
+                s -> nearDuplicateService.findReusable("text", s, file.getId(), file.getOwnerId(), scan));
+        if (nearDuplicate.isPresent()) {
+            embeddingService.attach(nearDuplicate.get());
+            pipelineMetrics.time(PipelineMetrics.METADATA_SAVE, () -> metadataWriter.write(nearDuplicate.get()).join());
+            analysisCacheService.store(cacheKey, nearDuplicate.get());
+            nearDuplicateService.remember("text", file.getId(), file.getOwnerId(), signature.get());
             return JobStatus.COMPLETED;
-        } catch (Exception e) {
-            log.error("Error while processing Fileid {} with type:{} Got error: {}",
-                    file.getId(), file.getMimeType(), e.getMessage());
-            return JobStatus.FAILED;
         }
-    }
 
-    private byte[] downloadFileFromS3(String key) throws UnsupportedEncodingException {
-        String decodedKey = java.net.URLDecoder.decode(key, StandardCharsets.UTF_8);
+        // Call Bedrock core
+        SummaryResponse result = bedrockService.analyzeContent(extractedText, 40, scan);
+        if (result.getSummary() == null) {
+            pipelineMetrics.fallback("analysis_empty", file.getMimeType());
+        }
+
+        Metadata metadata = Metadata.builder()
+                .id(UUID.randomUUID())
+                .fileId(file.getId())
+                .aiTag(result.getTags())
+                .summary(result.getSummary())
+                .sensitiveFlag(result.isSensitive())
+                .confidentialFlag(result.isConfidential())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .degraded(result.isDegraded())
+                .build();
+
+        embeddingService.attach(metadata);
 
-        return s3Client.getObjectAsBytes(b -> b.bucket(bucketName).key(decodedKey))
-                .asByteArray();
+        // Returns once the row is committed, so the caller may delete the message
+        pipelineMetrics.time(PipelineMetrics.METADATA_SAVE, () -> metadataWriter.write(metadata).join());
+        analysisCacheService.store(cacheKey, metadata);
+        if (!metadata.isDegraded()) {
+            signature.ifPresent(s -> nearDuplicateService.remember("text", file.getId(), file.getOwnerId(), s));
+        }
+
+        return JobStatus.COMPLETED;
     }
 
-    private String extractTextFromFile(byte[] fileBytes) throws Exception {
-        try (InputStream stream = new ByteArrayInputStream(fileBytes)) {
-            Tika tika = new Tika();
-            return tika.parseToString(stream);
+    private String downloadAndExtractText(FileDto file) throws Exception {
+        String decodedKey = java.net.URLDecoder.decode(file.getS3Key(), StandardCharsets.UTF_8);
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(decodedKey)
+                .build();
+
+        // Large objects go to disk first so the parser reads a file instead of holding the HTTP stream open
+        if (file.getFileSize() != null && file.getFileSize() > spillThresholdBytes) {
+            Path tempFile = Files.createTempFile("filemanager-", ".tmp");
+            try {
+                Files.delete(tempFile); // toFile refuses to overwrite
+                pipelineMetrics.time(PipelineMetrics.S3_DOWNLOAD,
+                        () -> s3Client.getObject(request, ResponseTransformer.toFile(tempFile)));
+                try (InputStream stream = TikaInputStream.get(tempFile)) {
+                    return pipelineMetrics.timeCallable(PipelineMetrics.TIKA_EXTRACT,
+                            () -> tikaExtractionService.extract(stream, file.getMimeType()));
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        // Streamed: download covers time to first byte, the rest overlaps with extraction
+        try (ResponseInputStream<GetObjectResponse> stream =
+                     pipelineMetrics.time(PipelineMetrics.S3_DOWNLOAD, () -> s3Client.getObject(request))) {
+            SourceInputStream source = new SourceInputStream(stream);
+            try {
+                return pipelineMetrics.timeCallable(PipelineMetrics.TIKA_EXTRACT,
+                        () -> tikaExtractionService.extract(source, file.getMimeType()));
+            } catch (TimeoutException e) {
+                // Drop the connection rather than let close() drain the rest of the body
+                stream.abort();
+                throw e;
+            } catch (Exception e) {
+                // A dropped connection surfaces as a parse error; report the read so it is retried, not dead-lettered
+                if (source.failure() != null) {
+                    stream.abort();
+                    throw source.failure();
+                }
+                throw e;
+            }
         }
     }
 }
@@ -0,0 +1,170 @@
+package com.file.manager.services;
+
+import com.file.manager.metrics.PipelineMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.ContentHandlerDecorator;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Text extraction with one shared {@link AutoDetectParser} (thread-safe once built).
+ * Output stops at a character or page limit, and every parse runs on a dedicated
+ * pool with a deadline, so a malformed document cannot pin a handler thread.
+ */
+@Slf4j
+@Service
+public class TikaExtractionService {
+
+    // Bedrock sees at most chunk-tokens per call anyway; beyond this the text is not worth the calls
+    @Value("${tika.max-chars:1000000}")
+    private int maxChars;
+
+    @Value("${tika.max-pages:500}")
+    private int maxPages;
+
+    @Value("${tika.timeout-seconds:60}")
+    private long timeoutSeconds;
+
+    // Parsing is CPU-bound, unlike the handler pools which mostly wait on AWS
+    @Value("${tika.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int threads;
+
+    @Value("${tika.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    private final AutoDetectParser parser = new AutoDetectParser();
+    private ThreadPoolExecutor parseExecutor;
+
+    @PostConstruct
+    public void start() {
+        parseExecutor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("tika-parser-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        parseExecutor.allowCoreThreadTimeOut(true);
+
+        pipelineMetrics.gauge("tika.parsers.active", parseExecutor, ThreadPoolExecutor::getActiveCount);
+        pipelineMetrics.gauge("tika.parsers.queued", parseExecutor, e -> e.getQueue().size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        parseExecutor.shutdownNow();
+    }
+
+    /**
+     * Extracts plain text, pages separated by form feeds. Output past the character or
+     * page limit is dropped and the text so far returned.
+     *
+     * @throws TimeoutException when the parse (including time queued for a parser thread)
+     *                          exceeds the deadline; the caller should abort the stream
+     */
+    public String extract(InputStream stream, String mimeType) throws Exception {
+        Future<String> parse = parseExecutor.submit(() -> parse(stream, mimeType));
+        try {
+            return parse.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // Parsers rarely check the interrupt flag; closing the stream is what actually stops them
+            parse.cancel(true);
+            pipelineMetrics.increment("tika.limits", "limit", "timeout");
+            throw new TimeoutException("Tika parse exceeded " + timeoutSeconds + "s deadline");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private String parse(InputStream stream, String mimeType) throws Exception {
+        WriteOutContentHandler text = new WriteOutContentHandler(maxChars);
+        PageLimitingHandler pages = new PageLimitingHandler(text, maxPages);
+
+        Metadata metadata = new Metadata();
+        if (mimeType != null) {
+            metadata.set(Metadata.CONTENT_TYPE, mimeType); // detection hint, saves sniffing the bytes
+        }
+
+        try {
+            parser.parse(stream, new BodyContentHandler(pages), metadata, new ParseContext());
+        } catch (Exception e) {
+            if (WriteLimitReachedException.isWriteLimitReached(e)) {
+                log.warn("Extracted text truncated at {} characters", maxChars);
+                pipelineMetrics.increment("tika.limits", "limit", "chars");
+            } else if (pages.isLimitReached()) {
+                log.warn("Extracted text truncated at {} pages", maxPages);
+                pipelineMetrics.increment("tika.limits", "limit", "pages");
+            } else {
+                throw e;
+            }
+        }
+        return text.toString();
+    }
+
+    // Emits a form feed after every page (TextChunker splits on them) and stops the parse past the limit
+    private static class PageLimitingHandler extends ContentHandlerDecorator {
+
+        private final int maxPages;
+        // One entry per open div, true if it is a page
+        private final Deque<Boolean> divs = new ArrayDeque<>();
+        private int pages;
+        private boolean limitReached;
+
+        PageLimitingHandler(ContentHandler handler, int maxPages) {
+            super(handler);
+            this.maxPages = maxPages;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
+            if ("div".equals(localName)) {
+                boolean page = "page".equals(atts.getValue("class"));
+                if (page && ++pages > maxPages) {
+                    limitReached = true;
+                    throw new SAXException("Page limit of " + maxPages + " reached");
+                }
+                divs.push(page);
+            }
+            super.startElement(uri, localName, name, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String name) throws SAXException {
+            super.endElement(uri, localName, name);
+            if ("div".equals(localName) && !divs.isEmpty() && divs.pop()) {
+                super.characters(new char[]{'\f'}, 0, 1);
+            }
+        }
+
+        boolean isLimitReached() {
+            return limitReached;
+        }
+    }
+}
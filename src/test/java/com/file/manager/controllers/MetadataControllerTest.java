@@ -0,0 +1,118 @@
+package com.file.manager.controllers;
+
+import com.file.manager.dto.MetadataQuery;
+import com.file.manager.dto.MetadataResponse;
+import com.file.manager.services.MetadataQueryService;
+import com.file.manager.services.SimilarityService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MetadataControllerTest {
+
+    private final MetadataQueryService metadataQueryService = mock(MetadataQueryService.class);
+    private final SimilarityService similarityService = mock(SimilarityService.class);
+    private final MetadataController controller = new MetadataController(metadataQueryService, similarityService);
+
+    private final UUID owner = UUID.randomUUID();
+    private final UUID otherOwner = UUID.randomUUID();
+
+    @Test
+    void ownerReadsOwnFile() {
+        UUID fileId = UUID.randomUUID();
+        MetadataResponse response = MetadataResponse.builder().fileId(fileId).ownerId(owner).build();
+        when(metadataQueryService.findByFileId(fileId)).thenReturn(Optional.of(response));
+
+        assertThat(controller.get(fileId, user(owner.toString()))).isSameAs(response);
+    }
+
+    @Test
+    void anotherOwnersFileIsNotFound() {
+        UUID fileId = UUID.randomUUID();
+        when(metadataQueryService.findByFileId(fileId))
+                .thenReturn(Optional.of(MetadataResponse.builder().fileId(fileId).ownerId(otherOwner).build()));
+
+        assertThatThrownBy(() -> controller.get(fileId, user(owner.toString())))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        assertThatThrownBy(() -> controller.similar(fileId, 10, user(owner.toString())))
+                .isInstanceOf(ResponseStatusException.class);
+        verify(similarityService, never()).similarTo(any(), anyInt(), any());
+    }
+
+    @Test
+    void adminReadsAnyOwner() {
+        UUID fileId = UUID.randomUUID();
+        MetadataResponse response = MetadataResponse.builder().fileId(fileId).ownerId(otherOwner).build();
+        when(metadataQueryService.findByFileId(fileId)).thenReturn(Optional.of(response));
+        when(similarityService.similarTo(fileId, 10, null)).thenReturn(Optional.of(List.of()));
+
+        assertThat(controller.get(fileId, admin())).isSameAs(response);
+        assertThat(controller.similar(fileId, 10, admin())).isEmpty();
+    }
+
+    @Test
+    void similarFilesAreLimitedToTheCallersOwner() {
+        UUID fileId = UUID.randomUUID();
+        when(metadataQueryService.findByFileId(fileId))
+                .thenReturn(Optional.of(MetadataResponse.builder().fileId(fileId).ownerId(owner).build()));
+        when(similarityService.similarTo(fileId, 5, owner)).thenReturn(Optional.of(List.of()));
+
+        controller.similar(fileId, 5, user(owner.toString()));
+
+        verify(similarityService).similarTo(fileId, 5, owner);
+    }
+
+    @Test
+    void searchIsScopedToTheCaller() {
+        MetadataQuery query = MetadataQuery.builder().tag("invoice").build();
+
+        controller.search(query, null, null, user(owner.toString()));
+
+        verify(metadataQueryService).search(eq(MetadataQuery.builder().tag("invoice").ownerId(owner).build()), eq(null), eq(null));
+    }
+
+    @Test
+    void searchingAnotherOwnerNeedsAdmin() {
+        MetadataQuery query = MetadataQuery.builder().ownerId(otherOwner).build();
+
+        assertThatThrownBy(() -> controller.search(query, null, null, user(owner.toString())))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+
+        controller.search(query, null, null, admin());
+        verify(metadataQueryService).search(eq(MetadataQuery.builder().ownerId(otherOwner).build()), eq(null), eq(null));
+    }
+
+    @Test
+    void principalThatIsNotAnOwnerIsForbidden() {
+        assertThatThrownBy(() -> controller.search(new MetadataQuery(), null, null, user("alice")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+    }
+
+    private static Authentication user(String name) {
+        return new UsernamePasswordAuthenticationToken(name, "n/a", AuthorityUtils.createAuthorityList("ROLE_USER"));
+    }
+
+    private static Authentication admin() {
+        return new UsernamePasswordAuthenticationToken("admin", "n/a", AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+    }
+}
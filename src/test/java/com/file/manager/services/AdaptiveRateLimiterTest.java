@@ -0,0 +1,152 @@
+package com.file.manager.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveRateLimiterTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    // SDK calls handed out by the limiter, completed by the test
+    private final List<CompletableFuture<String>> calls = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void limitCapsCallsInFlight() {
+        AdaptiveRateLimiter limiter = limiter(2, 1, 10);
+
+        List<CompletableFuture<String>> results = submit(limiter, 5);
+
+        assertThat(calls).hasSize(2);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getWaiting()).isEqualTo(3);
+
+        calls.get(0).complete("done");
+        assertThat(results.get(0)).isCompletedWithValue("done");
+        assertThat(calls).hasSize(3);
+        assertThat(limiter.getWaiting()).isEqualTo(2);
+    }
+
+    @Test
+    void successesGrowTheLimitByAboutOnePerWindow() {
+        AdaptiveRateLimiter limiter = limiter(10, 1, 100);
+
+        for (int i = 0; i < 20; i++) {
+            submit(limiter, 1);
+            calls.get(i).complete("ok");
+        }
+
+        // 10 + 1/10 + 1/10.1 + ... over 20 calls is about sqrt(10^2 + 2 * 20)
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(11);
+    }
+
+    @Test
+    void throttlesFromOneWindowCutTheLimitOnce() {
+        AdaptiveRateLimiter limiter = limiter(20, 1, 100);
+
+        submit(limiter, 10);
+        calls.forEach(call -> call.completeExceptionally(throttle()));
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(10);
+
+        // Started after the cut, so its throttle counts
+        submit(limiter, 1);
+        calls.get(10).completeExceptionally(throttle());
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void limitNeverDropsBelowTheMinimum() {
+        AdaptiveRateLimiter limiter = limiter(8, 3, 100);
+
+        for (int i = 0; i < 5; i++) {
+            submit(limiter, 1);
+            calls.get(i).completeExceptionally(throttle());
+        }
+
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void throttledCallFailsOnceRetriesAreSpent() {
+        AdaptiveRateLimiter limiter = limiter(4, 1, 100);
+
+        CompletableFuture<String> result = submit(limiter, 1).get(0);
+        calls.get(0).completeExceptionally(throttle());
+
+        assertThat(result).isCompletedExceptionally();
+        assertThat(AdaptiveRateLimiter.isThrottle(result.handle((value, error) -> error).join())).isTrue();
+    }
+
+    @Test
+    void cancellingTheResultCancelsTheCallAndFreesItsSlot() {
+        AdaptiveRateLimiter limiter = limiter(1, 1, 100);
+
+        List<CompletableFuture<String>> results = submit(limiter, 2);
+        results.get(0).cancel(true);
+
+        assertThat(calls.get(0)).isCancelled();
+        assertThat(calls).hasSize(2);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        // A cancelled call is neither a success nor a throttle
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledWaitingCallIsNeverStarted() {
+        AdaptiveRateLimiter limiter = limiter(1, 1, 100);
+        AtomicInteger started = new AtomicInteger();
+
+        CompletableFuture<String> first = limiter.submit(() -> {
+            started.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        CompletableFuture<String> second = limiter.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("late");
+        });
+        second.cancel(true);
+        first.cancel(true);
+
+        assertThat(started).hasValue(1);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    // No retries and a bucket that never runs dry, so only the AIMD limit decides what runs
+    private AdaptiveRateLimiter limiter(int initialLimit, int minLimit, int maxLimit) {
+        return new AdaptiveRateLimiter("test", 1_000_000, 1_000_000, initialLimit, minLimit, maxLimit, 0.5,
+                0, 1, 1, scheduler);
+    }
+
+    private List<CompletableFuture<String>> submit(AdaptiveRateLimiter limiter, int count) {
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(limiter.submit(() -> {
+                CompletableFuture<String> call = new CompletableFuture<>();
+                calls.add(call);
+                return call;
+            }));
+        }
+        return results;
+    }
+
+    private static AwsServiceException throttle() {
+        return AwsServiceException.builder()
+                .statusCode(429)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ThrottlingException").build())
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.file.manager.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BedrockServiceTest {
+
+    private final TextChunker textChunker = new TextChunker();
+    private BedrockService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BedrockService(null, new ObjectMapper(), textChunker, null, null);
+        ReflectionTestUtils.setField(service, "chunkTokens", 2000);
+    }
+
+    @Test
+    void reduceBatchesFitTheChunkBudget() {
+        // ~125 chunks of a 1,000,000 character document, each summarized in about 40 words
+        List<String> summaries = IntStream.range(0, 125)
+                .mapToObj(i -> ("summary" + i + " ").repeat(40).trim())
+                .toList();
+
+        List<List<String>> batches = service.reduceBatches(summaries);
+
+        assertThat(batches).hasSizeBetween(2, 10);
+        assertThat(batches).allSatisfy(batch ->
+                assertThat(textChunker.estimateTokens(String.join("\n\n", batch))).isLessThanOrEqualTo(2000));
+        assertThat(batches.stream().flatMap(List::stream).toList()).containsExactlyElementsOf(summaries);
+    }
+
+    @Test
+    void everyLevelShrinksEvenWithOversizedSummaries() {
+        String big = "x".repeat(20_000);
+
+        assertThat(service.reduceBatches(List.of(big, big, "small")))
+                .containsExactly(List.of(big, big), List.of("small"));
+        assertThat(service.reduceBatches(Collections.nCopies(2, big))).hasSize(1);
+    }
+
+    @Test
+    void noSummariesIsOneEmptyBatch() {
+        assertThat(service.reduceBatches(List.of())).containsExactly(List.of());
+    }
+}
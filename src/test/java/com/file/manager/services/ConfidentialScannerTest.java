@@ -0,0 +1,102 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.ScanFinding;
+import com.file.manager.dto.ScanResult;
+import com.file.manager.enums.FindingType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfidentialScannerTest {
+
+    private final ConfidentialScanner scanner = new ConfidentialScanner(
+            List.of("invoice", "confidential", "contract", "bank", "credit", "debit", "form"),
+            List.of("passport", "driver license", "driving licence", "ssn", "aadhaar", "id card", "identity card", "national id"));
+
+    @Test
+    void cardNumberMustPassLuhn() {
+        assertThat(types("Card: 4111 1111 1111 1111")).containsExactly(FindingType.CARD_NUMBER);
+        assertThat(types("Card: 4111-1111-1111-1111")).containsExactly(FindingType.CARD_NUMBER);
+        assertThat(types("Amex 378282246310005 on file")).containsExactly(FindingType.CARD_NUMBER);
+
+        // Last digit off by one
+        assertThat(types("Card: 4111 1111 1111 1112")).isEmpty();
+        assertThat(scanner.scan("Card: 4111 1111 1111 1111").isSensitive()).isTrue();
+    }
+
+    @Test
+    void cardNumberNeedsCardSeparatorsAndLength() {
+        assertThat(types("4111/1111/1111/1111")).doesNotContain(FindingType.CARD_NUMBER);
+        // 12 digits is too short for a card
+        assertThat(types("4111 1111 1111")).isEmpty();
+    }
+
+    @Test
+    void digitsGluedToLettersAreNotNumbers() {
+        assertThat(types("SKU4111111111111111")).doesNotContain(FindingType.CARD_NUMBER);
+        assertThat(types("4111111111111111kg")).doesNotContain(FindingType.CARD_NUMBER);
+    }
+
+    @Test
+    void nationalIdAndDates() {
+        assertThat(types("SSN on record: 123-45-6789.")).contains(FindingType.NATIONAL_ID);
+
+        ScanResult date = scanner.scan("Issued 01/02/1990");
+        assertThat(types(date)).containsExactly(FindingType.DATE);
+        assertThat(date.isSensitive()).isFalse();
+        assertThat(date.isConfidential()).isFalse();
+    }
+
+    @Test
+    void keywordsMatchWholeWordsOnly() {
+        assertThat(types("valid cardholder")).isEmpty();
+        assertThat(types("invoices")).isEmpty();
+        assertThat(types("bankrupt formation")).isEmpty();
+
+        assertThat(types("Please bring your ID card")).containsExactly(FindingType.IDENTITY_KEYWORD);
+        assertThat(types("(invoice)")).containsExactly(FindingType.CONFIDENTIAL_KEYWORD);
+    }
+
+    @Test
+    void keywordsIgnoreCaseAndLineBreaks() {
+        ScanResult result = scanner.scan("DRIVER\nLicense attached");
+        assertThat(types(result)).containsExactly(FindingType.IDENTITY_KEYWORD);
+        ScanFinding finding = result.getFindings().get(0);
+        assertThat(finding.getStart()).isZero();
+        assertThat(finding.getEnd()).isEqualTo("DRIVER\nLicense".length());
+    }
+
+    @Test
+    void overlappingKeywordsAreAllReported() {
+        // One keyword each; "national id card" holds two that share "id"
+        assertThat(types("identity card")).containsExactly(FindingType.IDENTITY_KEYWORD);
+        assertThat(types("national id card")).containsExactly(FindingType.IDENTITY_KEYWORD, FindingType.IDENTITY_KEYWORD);
+    }
+
+    @Test
+    void longMixedTokensAreSecrets() {
+        ScanResult result = scanner.scan("key=sk_live_4f3a9b2c8d7e6f5a4b3c");
+        assertThat(types(result)).containsExactly(FindingType.SECRET_TOKEN);
+        assertThat(result.isConfidential()).isTrue();
+
+        assertThat(types("supercalifragilisticexpialidocious")).isEmpty();
+        assertThat(types("12345678901234567890123")).doesNotContain(FindingType.SECRET_TOKEN);
+    }
+
+    @Test
+    void blankTextHasNoFindings() {
+        assertThat(scanner.scan(null)).isSameAs(ScanResult.EMPTY);
+        assertThat(scanner.scan("  \n ")).isSameAs(ScanResult.EMPTY);
+        assertThat(types("Überweisung für Müller")).isEmpty();
+    }
+
+    private List<FindingType> types(String text) {
+        return types(scanner.scan(text));
+    }
+
+    private static List<FindingType> types(ScanResult result) {
+        return result.getFindings().stream().map(ScanFinding::getType).toList();
+    }
+}
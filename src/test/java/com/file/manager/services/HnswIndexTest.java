@@ -0,0 +1,146 @@
+package com.file.manager.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+    private static final int VECTORS = 2000;
+    private static final int K = 10;
+
+    @Test
+    void recallAgainstExactSearch() {
+        Random random = new Random(7);
+        float[][] centres = new float[20][];
+        for (int c = 0; c < centres.length; c++) {
+            centres[c] = gaussian(random, 1.0f);
+        }
+
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, VECTORS);
+        float[][] data = new float[VECTORS][];
+        for (int i = 0; i < VECTORS; i++) {
+            data[i] = HnswIndex.normalize(around(random, centres[random.nextInt(centres.length)]));
+            index.add(key(i), data[i], 1);
+        }
+
+        int found = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            float[] query = HnswIndex.normalize(around(random, centres[random.nextInt(centres.length)]));
+            Set<UUID> truth = Arrays.stream(exact(data, query)).mapToObj(HnswIndexTest::key).collect(Collectors.toSet());
+            for (HnswIndex.Neighbour neighbour : index.search(query, K, 64, null)) {
+                if (truth.contains(neighbour.key())) found++;
+            }
+        }
+
+        assertThat((double) found / (queries * K)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void resultsAreMostSimilarFirstAndSkipTheExcludedKey() {
+        HnswIndex index = filledIndex();
+
+        float[] self = index.vector(key(5)).orElseThrow();
+        List<HnswIndex.Neighbour> withSelf = index.search(self, 5, 32, null);
+        assertThat(withSelf.get(0).key()).isEqualTo(key(5));
+        assertThat(withSelf.get(0).score()).isCloseTo(1.0f, within(1e-4f));
+        for (int i = 1; i < withSelf.size(); i++) {
+            assertThat(withSelf.get(i).score()).isLessThanOrEqualTo(withSelf.get(i - 1).score());
+        }
+
+        List<HnswIndex.Neighbour> withoutSelf = index.search(self, 5, 32, key(5));
+        assertThat(withoutSelf).hasSize(5).noneMatch(n -> n.key().equals(key(5)));
+    }
+
+    @Test
+    void replacedAndRemovedKeysAreNotReturned() {
+        HnswIndex index = filledIndex();
+        float[] original = index.vector(key(1)).orElseThrow();
+
+        // Same or older version is ignored
+        assertThat(index.add(key(1), gaussian(new Random(1), 1.0f), 1)).isFalse();
+        assertThat(index.vector(key(1))).hasValueSatisfying(v -> assertThat(v).containsExactly(original));
+
+        float[] replacement = HnswIndex.normalize(gaussian(new Random(2), 1.0f));
+        assertThat(index.add(key(1), replacement, 2)).isTrue();
+        assertThat(index.size()).isEqualTo(201);
+        assertThat(index.liveCount()).isEqualTo(200);
+        List<HnswIndex.Neighbour> nearOriginal = index.search(original, 200, 256, null);
+        assertThat(nearOriginal.stream().filter(n -> n.key().equals(key(1)))).hasSize(1);
+
+        assertThat(index.remove(key(2))).isTrue();
+        Set<UUID> keys = new HashSet<>();
+        index.search(original, 200, 256, null).forEach(n -> keys.add(n.key()));
+        assertThat(keys).doesNotContain(key(2));
+
+        HnswIndex rebuilt = index.rebuilt();
+        assertThat(rebuilt.size()).isEqualTo(199);
+        assertThat(rebuilt.version(key(1))).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsWrongDimensions() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 50, 16);
+        assertThatThrownBy(() -> index.add(key(0), new float[DIMENSIONS + 1], 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(index.search(new float[DIMENSIONS], K, 16, null)).isEmpty();
+    }
+
+    private static HnswIndex filledIndex() {
+        Random random = new Random(11);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 50, 200);
+        IntStream.range(0, 200).forEach(i -> index.add(key(i), gaussian(random, 1.0f), 1));
+        return index;
+    }
+
+    private static UUID key(int i) {
+        return new UUID(0, i);
+    }
+
+    // Indices of the K highest dot products
+    private static int[] exact(float[][] data, float[] query) {
+        return IntStream.range(0, data.length)
+                .boxed()
+                .sorted((a, b) -> Float.compare(dot(query, data[b]), dot(query, data[a])))
+                .limit(K)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static float[] around(Random random, float[] centre) {
+        float[] noise = gaussian(random, 0.35f);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            noise[i] += centre[i];
+        }
+        return noise;
+    }
+
+    private static float[] gaussian(Random random, float scale) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,38 @@
+package com.file.manager.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetadataQueryServiceTest {
+
+    @Test
+    void cursorRoundTrips() {
+        for (int i = 0; i < 100; i++) {
+            UUID fileId = UUID.randomUUID();
+            assertThat(MetadataQueryService.decodeCursor(MetadataQueryService.encodeCursor(fileId))).isEqualTo(fileId);
+        }
+    }
+
+    @Test
+    void cursorIsSafeInAQueryString() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(MetadataQueryService.encodeCursor(UUID.randomUUID())).matches("[A-Za-z0-9_-]+");
+        }
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> MetadataQueryService.decodeCursor("not a cursor!"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        String notAUuid = Base64.getUrlEncoder().withoutPadding().encodeToString("hello".getBytes());
+        assertThatThrownBy(() -> MetadataQueryService.decodeCursor(notAUuid))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+}
@@ -0,0 +1,100 @@
+package com.file.manager.services;
+
+import com.file.manager.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class NearDuplicateServiceTest {
+
+    private NearDuplicateService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new NearDuplicateService();
+        ReflectionTestUtils.setField(service, "pipelineMetrics", new PipelineMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "threshold", 0.9);
+        ReflectionTestUtils.setField(service, "hashes", 128);
+        ReflectionTestUtils.setField(service, "bands", 16);
+        ReflectionTestUtils.setField(service, "shingleWords", 5);
+        ReflectionTestUtils.setField(service, "minWords", 50);
+        ReflectionTestUtils.setField(service, "maxCandidates", 10);
+        service.init();
+    }
+
+    @Test
+    void similarityIsTheShareOfEqualPositions() {
+        assertThat(NearDuplicateService.similarity(new int[]{1, 2, 3, 4}, new int[]{1, 2, 3, 4})).isEqualTo(1.0);
+        assertThat(NearDuplicateService.similarity(new int[]{1, 2, 3, 4}, new int[]{1, 9, 3, 9})).isEqualTo(0.5);
+        assertThat(NearDuplicateService.similarity(new int[]{1, 2, 3, 4}, new int[]{5, 6, 7, 8})).isZero();
+    }
+
+    @Test
+    void signaturesOfDifferentSizesAreNotComparable() {
+        assertThat(NearDuplicateService.similarity(new int[]{1, 2, 3}, new int[]{1, 2, 3, 4})).isZero();
+    }
+
+    @Test
+    void nearIdenticalTextsAreAboveTheThreshold() {
+        List<String> words = words(new Random(3), 400);
+        String original = String.join(" ", words);
+        // Another date on an otherwise identical contract
+        words.set(200, "2026");
+        String copy = String.join(" ", words);
+
+        double similarity = similarity(original, copy);
+        // One changed word breaks 5 of ~396 shingles
+        assertThat(similarity).isCloseTo(0.975, within(0.05));
+        assertThat(similarity).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void unrelatedTextsAreFarBelowTheThreshold() {
+        String a = String.join(" ", words(new Random(3), 400));
+        String b = String.join(" ", words(new Random(4), 400));
+
+        assertThat(similarity(a, b)).isLessThan(0.2);
+    }
+
+    @Test
+    void caseAndPunctuationDoNotChangeTheSignature() {
+        String text = String.join(" ", words(new Random(5), 100));
+        String shouted = text.toUpperCase().replace(" ", ", ");
+
+        NearDuplicateService.Signature a = service.signature(text).orElseThrow();
+        NearDuplicateService.Signature b = service.signature(shouted).orElseThrow();
+        assertThat(a.minHashes()).containsExactly(b.minHashes());
+        assertThat(a.bands()).containsExactly(b.bands());
+    }
+
+    @Test
+    void shortOrMissingTextHasNoSignature() {
+        assertThat(service.signature(null)).isEmpty();
+        assertThat(service.signature(String.join(" ", words(new Random(6), 49)))).isEmpty();
+        assertThat(service.signature(String.join(" ", words(new Random(6), 50)))).isPresent();
+    }
+
+    private double similarity(String a, String b) {
+        return NearDuplicateService.similarity(
+                service.signature(a).orElseThrow().minHashes(),
+                service.signature(b).orElseThrow().minHashes());
+    }
+
+    // Random words from a large vocabulary, so unrelated texts share few shingles
+    private static List<String> words(Random random, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add("w" + random.nextInt(5000));
+        }
+        return words;
+    }
+}
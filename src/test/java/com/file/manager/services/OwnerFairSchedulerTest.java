@@ -0,0 +1,138 @@
+package com.file.manager.services;
+
+import com.file.manager.dto.FileDto;
+import com.file.manager.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OwnerFairSchedulerTest {
+
+    private static final long MB = 1 << 20;
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    private final List<UUID> dispatched = Collections.synchronizedList(new ArrayList<>());
+    private final MockEnvironment environment = new MockEnvironment();
+    private FileHandlerRegistry handlerRegistry;
+    private OwnerFairScheduler scheduler;
+    // false: handed-over files never finish, so owners stay at their concurrency cap
+    private volatile boolean runTasks = true;
+
+    @BeforeEach
+    void setUp() {
+        handlerRegistry = mock(FileHandlerRegistry.class);
+        when(handlerRegistry.hasIdleWorker(any())).thenReturn(true);
+        doAnswer(invocation -> {
+            FileDto file = invocation.getArgument(0);
+            dispatched.add(file.getOwnerId());
+            if (runTasks) ((Runnable) invocation.getArgument(1)).run();
+            return null;
+        }).when(handlerRegistry).submit(any(), any());
+
+        scheduler = new OwnerFairScheduler();
+        ReflectionTestUtils.setField(scheduler, "handlerRegistry", handlerRegistry);
+        ReflectionTestUtils.setField(scheduler, "environment", environment);
+        ReflectionTestUtils.setField(scheduler, "pipelineMetrics", new PipelineMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "lookahead", 100);
+        ReflectionTestUtils.setField(scheduler, "quantumBytes", MB);
+        ReflectionTestUtils.setField(scheduler, "defaultOwnerMaxConcurrency", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    void bulkImportDoesNotStarveAnotherOwner() throws InterruptedException {
+        submit(ALICE, 6, MB);
+        submit(BOB, 3, MB);
+        scheduler.start();
+
+        awaitDispatched(9);
+        assertThat(dispatched).containsExactly(ALICE, BOB, ALICE, BOB, ALICE, BOB, ALICE, ALICE, ALICE);
+    }
+
+    @Test
+    void weightScalesTheShare() throws InterruptedException {
+        environment.setProperty("fair.owners." + ALICE + ".weight", "2");
+        submit(ALICE, 6, MB);
+        submit(BOB, 3, MB);
+        scheduler.start();
+
+        awaitDispatched(9);
+        assertThat(dispatched).containsExactly(ALICE, ALICE, BOB, ALICE, ALICE, BOB, ALICE, ALICE, BOB);
+    }
+
+    @Test
+    void largeFilesCostMoreCredit() throws InterruptedException {
+        // One 4 MB file takes four rounds of credit; the owner of small files is served meanwhile
+        submit(ALICE, 1, 4 * MB);
+        submit(BOB, 4, MB);
+        scheduler.start();
+
+        awaitDispatched(5);
+        assertThat(dispatched).containsExactly(BOB, BOB, BOB, ALICE, BOB);
+    }
+
+    @Test
+    void ownerIsHeldAtItsConcurrencyCap() throws InterruptedException {
+        runTasks = false;
+        environment.setProperty("fair.owners." + ALICE + ".max-concurrency", "2");
+        submit(ALICE, 5, MB);
+        submit(BOB, 1, MB);
+        scheduler.start();
+
+        awaitDispatched(3);
+        Thread.sleep(200);
+        assertThat(dispatched).containsExactly(ALICE, BOB, ALICE);
+        assertThat(scheduler.drainPending()).hasSize(3);
+    }
+
+    @Test
+    void disabledHandsFilesStraightToThePools() {
+        ReflectionTestUtils.setField(scheduler, "enabled", false);
+        assertThat(scheduler.lookahead()).isZero();
+
+        submit(ALICE, 2, MB);
+        assertThat(dispatched).containsExactly(ALICE, ALICE);
+    }
+
+    private void submit(UUID ownerId, int count, long size) {
+        for (int i = 0; i < count; i++) {
+            FileDto file = FileDto.builder()
+                    .id(UUID.randomUUID())
+                    .ownerId(ownerId)
+                    .mimeType("application/pdf")
+                    .fileSize(size)
+                    .build();
+            scheduler.submit(file, () -> {
+            });
+        }
+    }
+
+    private void awaitDispatched(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (dispatched.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(dispatched).hasSize(count);
+    }
+}
@@ -0,0 +1,96 @@
+package com.file.manager.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextChunkerTest {
+
+    private final TextChunker chunker = new TextChunker();
+
+    @Test
+    void estimatesFourCharactersPerToken() {
+        assertThat(chunker.estimateTokens(null)).isZero();
+        assertThat(chunker.estimateTokens("")).isZero();
+        assertThat(chunker.estimateTokens("abcd")).isEqualTo(1);
+        assertThat(chunker.estimateTokens("abcde")).isEqualTo(2);
+    }
+
+    @Test
+    void blankTextHasNoChunks() {
+        assertThat(chunker.chunk(null, 100)).isEmpty();
+        assertThat(chunker.chunk(" \n\n \f ", 100)).isEmpty();
+    }
+
+    @Test
+    void textWithinBudgetIsOneChunk() {
+        assertThat(chunker.chunk("  First paragraph.\n\nSecond one.  ", 100))
+                .containsExactly("First paragraph.\n\nSecond one.");
+    }
+
+    @Test
+    void paragraphsArePackedUpToTheBudget() {
+        String paragraph = "a".repeat(15);
+        String text = String.join("\n\n", paragraph, paragraph, paragraph, paragraph);
+
+        // 10 tokens = 40 chars: two paragraphs and their separator fit, a third does not
+        assertThat(chunker.chunk(text, 10))
+                .containsExactly(paragraph + "\n\n" + paragraph, paragraph + "\n\n" + paragraph);
+    }
+
+    @Test
+    void pageBreaksSplitParagraphs() {
+        assertThat(chunker.chunk("page one\fpage two", 2)).containsExactly("page one", "page two");
+        assertThat(chunker.chunk("page one\fpage two", 100)).containsExactly("page one\n\npage two");
+    }
+
+    @Test
+    void chunksEndAtPageBoundariesWhenPagesFit() {
+        String a = "a".repeat(15);
+        String b = "b".repeat(15);
+        String c = "c".repeat(15);
+
+        // Packing paragraphs across pages would give "a\n\nb" and "c", cutting the second page in half
+        assertThat(chunker.chunk(a + "\f" + b + "\n\n" + c, 10))
+                .containsExactly(a, b + "\n\n" + c);
+    }
+
+    @Test
+    void onlyAnOversizedPageIsCutAtParagraphs() {
+        String paragraph = "p".repeat(15);
+        String bigPage = String.join("\n\n", paragraph, paragraph, paragraph);
+
+        assertThat(chunker.chunk("first\f" + bigPage + "\flast", 10))
+                .containsExactly("first", paragraph + "\n\n" + paragraph, paragraph, "last");
+    }
+
+    @Test
+    void oversizedParagraphIsCutAtWhitespace() {
+        Random random = new Random(1);
+        String paragraph = IntStream.range(0, 300)
+                .mapToObj(i -> "word" + random.nextInt(1000))
+                .collect(Collectors.joining(" "));
+
+        List<String> chunks = chunker.chunk("intro\n\n" + paragraph + "\n\noutro", 25);
+
+        assertThat(chunks.get(0)).isEqualTo("intro");
+        assertThat(chunks.get(chunks.size() - 1)).isEqualTo("outro");
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(100));
+        // No word is split across chunks
+        List<String> rejoined = chunks.subList(1, chunks.size() - 1).stream()
+                .flatMap(chunk -> Arrays.stream(chunk.split(" ")))
+                .toList();
+        assertThat(rejoined).containsExactly(paragraph.split(" "));
+    }
+
+    @Test
+    void wordLongerThanTheBudgetIsCutHard() {
+        assertThat(chunker.chunk("x".repeat(10), 1)).containsExactly("xxxx", "xxxx", "xx");
+    }
+}